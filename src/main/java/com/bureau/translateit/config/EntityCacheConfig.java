@@ -0,0 +1,41 @@
+package com.bureau.translateit.config;
+
+import com.bureau.translateit.models.Document;
+import com.bureau.translateit.models.Translator;
+import com.bureau.translateit.services.EntityCache;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+@Configuration
+public class EntityCacheConfig {
+
+    @Bean
+    public EntityCache<Document> documentCache(
+            @Value("${entity.cache.max-size}") int maxSize,
+            @Value("${entity.cache.ttl-seconds}") long ttlSeconds
+    ) {
+        return new EntityCache<>("documents", maxSize, ttlSeconds, copier(Document::new));
+    }
+
+    @Bean
+    public EntityCache<Translator> translatorCache(
+            @Value("${entity.cache.max-size}") int maxSize,
+            @Value("${entity.cache.ttl-seconds}") long ttlSeconds
+    ) {
+        return new EntityCache<>("translators", maxSize, ttlSeconds, copier(Translator::new));
+    }
+
+    //Shallow copy of a detached entity, enough since callers only change its own columns
+    private static <T> UnaryOperator<T> copier(Supplier<T> factory) {
+        return source -> {
+            T copy = factory.get();
+            BeanUtils.copyProperties(source, copy);
+            return copy;
+        };
+    }
+}
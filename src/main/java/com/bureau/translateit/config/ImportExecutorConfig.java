@@ -0,0 +1,34 @@
+package com.bureau.translateit.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class ImportExecutorConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor importExecutor(
+            @Value("${imports.executor.threads}") int threads,
+            @Value("${imports.executor.queue-capacity}") int queueCapacity
+    ) {
+        //Bounded on both ends: a burst of uploads is rejected instead of piling up on the heap
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("csv-import-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    //Parses the CSV chunks of every import, 0 uses all the cores
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool csvParsePool(@Value("${imports.parse.parallelism}") int parallelism) {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,38 @@
+package com.bureau.translateit.config;
+
+import com.bureau.translateit.openai.CircuitBreaker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@Configuration
+public class OpenAiHttpConfig {
+
+    @Bean
+    public RestTemplate openAiRestTemplate(
+            @Value("${openai.http.connect-timeout-ms}") long connectTimeoutMs,
+            @Value("${openai.http.read-timeout-ms}") long readTimeoutMs
+    ) {
+        //The JDK client keeps connections alive and multiplexes requests over HTTP/2 when the server supports it
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return new RestTemplate(requestFactory);
+    }
+
+    @Bean
+    public CircuitBreaker openAiCircuitBreaker(
+            @Value("${openai.circuit.failure-threshold}") int failureThreshold,
+            @Value("${openai.circuit.open-seconds}") long openSeconds
+    ) {
+        return new CircuitBreaker(failureThreshold, openSeconds * 1000L);
+    }
+}
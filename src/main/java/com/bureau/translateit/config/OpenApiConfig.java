@@ -35,7 +35,11 @@ public class OpenApiConfig {
         tag2.setName("Documents");
         tag2.setDescription("Documents management routes.");
 
-        return Arrays.asList(tag1, tag2);
+        Tag tag3 = new Tag();
+        tag3.setName("Imports");
+        tag3.setDescription("Asynchronous CSV imports routes.");
+
+        return Arrays.asList(tag1, tag2, tag3);
     }
 
     @Bean
@@ -1,10 +1,19 @@
 package com.bureau.translateit.controllers;
 
 import com.bureau.translateit.models.Document;
+import com.bureau.translateit.models.ImportJob;
 import com.bureau.translateit.models.Translator;
+import com.bureau.translateit.models.dtos.BulkImportResult;
+import com.bureau.translateit.models.dtos.CountResult;
+import com.bureau.translateit.models.dtos.CursorPage;
 import com.bureau.translateit.models.dtos.DocumentDto;
+import com.bureau.translateit.models.dtos.DocumentSearchResult;
+import com.bureau.translateit.models.dtos.ImportResult;
 import com.bureau.translateit.services.DocumentService;
+import com.bureau.translateit.services.ImportJobService;
+import com.bureau.translateit.utils.ETags;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -13,12 +22,18 @@ import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.UUID;
 
@@ -29,6 +44,9 @@ public class DocumentController {
     @Autowired
     private DocumentService documentService;
 
+    @Autowired
+    private ImportJobService importJobService;
+
     @Operation(summary = "Create new document",
             description = "Create a new document according to JSON format passed info.",
             tags = {"Documents"},
@@ -58,7 +76,7 @@ public class DocumentController {
     }
 
     @Operation(summary = "Create new documents from CSV file",
-            description = "Create new documents according to provided CSV file.",
+            description = "Create new documents according to provided CSV file. The response lists every row, use view=summary for large files.",
             tags = {"Documents"},
             responses = {
                     @ApiResponse(description = "Created", responseCode = "201", content =
@@ -84,13 +102,130 @@ public class DocumentController {
         return ResponseEntity.ok(documents);
     }
 
+    @Operation(summary = "Create new documents from CSV file, counting the rows",
+            description = "Create new documents according to provided CSV file. Only returns how many rows were created, for files too large to list in the response.",
+            tags = {"Documents"},
+            responses = {
+                    @ApiResponse(description = "Created", responseCode = "201", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ImportResult.class)
+                    )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Not Found", responseCode = "404",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @PostMapping(
+        value = "/upload/create",
+        params = {"view=summary", "!async", "!mode"},
+        consumes = {"multipart/form-data"},
+        produces = {"application/json"}
+    )
+    public ResponseEntity<ImportResult> uploadDocumentsCsvSummary(@RequestPart("file") MultipartFile file) {
+        ImportResult result = documentService.createFromCsvSummary(file);
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Create new documents from CSV file asynchronously",
+            description = "Start a background import of the provided CSV file. Its progress is available at /api/imports/{id} from the same instance until it is restarted, see that endpoint.",
+            tags = {"Documents"},
+            responses = {
+                    @ApiResponse(description = "Accepted", responseCode = "202", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ImportJob.class)
+                    )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Service Unavailable", responseCode = "503",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @PostMapping(
+        value = "/upload/create",
+        params = "async=true",
+        consumes = {"multipart/form-data"},
+        produces = {"application/json"}
+    )
+    public ResponseEntity<ImportJob> uploadDocumentsCsvAsync(@RequestPart("file") MultipartFile file) {
+        ImportJob job = importJobService.submit("documents.create", file, (input, progress) -> documentService.createFromCsv(input, progress, chunk -> {}));
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/imports/{id}").buildAndExpand(job.getId()).toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+    @Operation(summary = "Bulk load documents from CSV file",
+            description = "Load a very large CSV file through a PostgreSQL COPY staging table. Every row is inserted, rows repeated in the file or already stored aren't skipped.",
+            tags = {"Documents"},
+            responses = {
+                    @ApiResponse(description = "Created", responseCode = "201", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = BulkImportResult.class)
+                    )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Not Found", responseCode = "404",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @PostMapping(
+        value = "/upload/create",
+        params = "mode=bulk",
+        consumes = {"multipart/form-data"},
+        produces = {"application/json"}
+    )
+    public ResponseEntity<BulkImportResult> bulkLoadDocumentsCsv(@RequestPart("file") MultipartFile file) {
+        BulkImportResult result = documentService.bulkCreateFromCsv(file);
+        return ResponseEntity.status(201).body(result);
+    }
+
+    @Operation(summary = "Bulk load documents from CSV file asynchronously",
+            description = "Start a background bulk load of the provided CSV file. Its progress is available at /api/imports/{id} from the same instance until it is restarted, see that endpoint.",
+            tags = {"Documents"},
+            responses = {
+                    @ApiResponse(description = "Accepted", responseCode = "202", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ImportJob.class)
+                    )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Service Unavailable", responseCode = "503",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @PostMapping(
+        value = "/upload/create",
+        params = {"mode=bulk", "async=true"},
+        consumes = {"multipart/form-data"},
+        produces = {"application/json"}
+    )
+    public ResponseEntity<ImportJob> bulkLoadDocumentsCsvAsync(@RequestPart("file") MultipartFile file) {
+        ImportJob job = importJobService.submit("documents.bulk", file, documentService::bulkCreateFromCsv);
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/imports/{id}").buildAndExpand(job.getId()).toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
     @Operation(summary = "Get all documents or get documents by author/locale",
-            description = "Get all existing documents or the ones according to the passed author/locale.",
+            description = "Get all existing documents or the ones according to the passed author/locale. Use view=summary to leave the content out.",
             tags = {"Documents"},
             responses = {
                     @ApiResponse(description = "Ok", responseCode = "200", content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = Translator.class)
                     )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
                     @ApiResponse(description = "Not Found", responseCode = "404", content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
                     )),
@@ -99,15 +234,166 @@ public class DocumentController {
                     ))
     })
     @GetMapping(produces = {"application/json"})
-    public ResponseEntity<Page<Document>> getDocuments(
+    public ResponseEntity<Page<?>> getDocuments(
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String locale,
+            @Parameter(description = "summary leaves the content out, full returns whole documents")
+            @RequestParam(defaultValue = "full") String view,
+            @ParameterObject Pageable pageable
+    ) {
+        Page<?> documents = switch (view) {
+            case "summary" -> documentService.getSummaries(author, locale, pageable);
+            case "full" -> documentService.getAll(author, locale, pageable);
+            default -> throw new IllegalArgumentException("Invalid view: " + view + ". Use summary or full");
+        };
+        return ResponseEntity.ok(documents);
+    }
+
+    @Operation(summary = "Get documents without totals",
+            description = "Same as listing documents, but the response only tells if there's a next page and skips the count query.",
+            tags = {"Documents"},
+            responses = {
+                    @ApiResponse(description = "Ok", responseCode = "200", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = Document.class)
+                    )),
+                    @ApiResponse(description = "Not Found", responseCode = "404", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @GetMapping(
+        params = "mode=slice",
+        produces = {"application/json"}
+    )
+    public ResponseEntity<Slice<Document>> getDocumentsSlice(
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String locale,
+            @ParameterObject Pageable pageable
+    ) {
+        Slice<Document> documents = documentService.getSlice(author, locale, pageable);
+        return ResponseEntity.ok(documents);
+    }
+
+    @Operation(summary = "Count documents",
+            description = "Get the total of documents, optionally by author/locale. The value is cached for a short time.",
+            tags = {"Documents"},
+            responses = {
+                    @ApiResponse(description = "Ok", responseCode = "200", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = CountResult.class)
+                    )),
+                    @ApiResponse(description = "Not Found", responseCode = "404", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @GetMapping(
+        value = "/count",
+        produces = {"application/json"}
+    )
+    public ResponseEntity<CountResult> countDocuments(
             @RequestParam(required = false) String author,
+            @RequestParam(required = false) String locale
+    ) {
+        return ResponseEntity.ok(new CountResult(documentService.count(author, locale)));
+    }
+
+    @Operation(summary = "Scroll documents with a cursor",
+            description = "Get documents ordered by creation, optionally by author/locale. Pass the returned nextCursor to get the following page.",
+            tags = {"Documents"},
+            responses = {
+                    @ApiResponse(description = "Ok", responseCode = "200", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPage.class)
+                    )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Not Found", responseCode = "404", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @GetMapping(
+        params = "mode=keyset",
+        produces = {"application/json"}
+    )
+    public ResponseEntity<CursorPage<Document>> scrollDocuments(
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String locale,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        CursorPage<Document> documents = documentService.scroll(author, locale, cursor, size);
+        return ResponseEntity.ok(documents);
+    }
+
+    @Operation(summary = "Search documents",
+            description = "Full-text search over subject and content, ranked by relevance. Passing a locale matches word variations in its language. " +
+                    "Results come as a slice: the matches aren't counted, use hasNext to know if there's another page.",
+            tags = {"Documents"},
+            responses = {
+                    @ApiResponse(description = "Ok", responseCode = "200", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = DocumentSearchResult.class)
+                    )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @GetMapping(
+        value = "/search",
+        produces = {"application/json"}
+    )
+    public ResponseEntity<Slice<DocumentSearchResult>> searchDocuments(
+            @RequestParam String q,
             @RequestParam(required = false) String locale,
             @ParameterObject Pageable pageable
     ) {
-        Page<Document> documents = documentService.getAll(author, locale, pageable);
+        Slice<DocumentSearchResult> documents = documentService.search(q, locale, pageable);
         return ResponseEntity.ok(documents);
     }
 
+    @Operation(summary = "Export documents",
+            description = "Stream all documents, optionally by author/locale, as NDJSON or as a CSV in the same format accepted by the upload.",
+            tags = {"Documents"},
+            responses = {
+                    @ApiResponse(description = "Ok", responseCode = "200", content = {
+                    @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = Document.class)),
+                    @Content(mediaType = "text/csv", schema = @Schema(implementation = String.class))
+                    }),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @GetMapping(value = "/export")
+    public ResponseEntity<StreamingResponseBody> exportDocuments(
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String locale,
+            @RequestParam(defaultValue = "ndjson") String format
+    ) {
+        DocumentService.ExportFormat exportFormat = switch (format) {
+            case "ndjson" -> DocumentService.ExportFormat.NDJSON;
+            case "csv" -> DocumentService.ExportFormat.CSV;
+            default -> throw new IllegalArgumentException("Invalid format: " + format + ". Use ndjson or csv");
+        };
+
+        StreamingResponseBody body = output -> documentService.export(author, locale, exportFormat, output);
+        return ResponseEntity.ok()
+                .contentType(exportFormat == DocumentService.ExportFormat.CSV ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"documents." + format + "\"")
+                .body(body);
+    }
+
     @Operation(summary = "Get document by id",
             description = "Get a document according to an id.",
             tags = {"Documents"},
@@ -118,6 +404,7 @@ public class DocumentController {
                     @ApiResponse(description = "Not Found", responseCode = "404", content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
                     )),
+                    @ApiResponse(description = "Not Modified", responseCode = "304"),
                     @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
                     ))
@@ -126,9 +413,20 @@ public class DocumentController {
         value = "/{id}",
         produces = {"application/json"}
     )
-    public ResponseEntity<Document> getDocumentById(@PathVariable UUID id) {
+    public ResponseEntity<Document> getDocumentById(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        //An unchanged document is answered from its version alone, without loading or serializing it
+        if(ifNoneMatch != null) {
+            Long version = documentService.getVersion(id);
+            if(version != null && ETags.matches(ifNoneMatch, version)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(version)).build();
+            }
+        }
+
         Document document = documentService.getById(id);
-        return ResponseEntity.ok(document);
+        return ResponseEntity.ok().eTag(ETags.of(document.getVersion())).body(document);
     }
 
     @Operation(summary = "Update document by id",
@@ -144,6 +442,9 @@ public class DocumentController {
                     @ApiResponse(description = "Not Found", responseCode = "404", content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
                     )),
+                    @ApiResponse(description = "Precondition Failed", responseCode = "412", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
                     @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
                     ))
@@ -153,13 +454,17 @@ public class DocumentController {
         consumes = {"application/json"},
         produces = {"application/json"}
     )
-    public ResponseEntity<Document> updateDocument(@PathVariable UUID id, @RequestBody @Valid DocumentDto updateDocumentDto) {
-        Document updatedDocument = documentService.update(id, updateDocumentDto);
-        return ResponseEntity.ok(updatedDocument);
+    public ResponseEntity<Document> updateDocument(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid DocumentDto updateDocumentDto
+    ) {
+        Document updatedDocument = documentService.update(id, updateDocumentDto, ETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(updatedDocument.getVersion())).body(updatedDocument);
     }
 
     @Operation(summary = "Update documents from CSV file",
-            description = "Update documents that its ids matches to the passed ones in a CSV file.",
+            description = "Update documents that its ids matches to the passed ones in a CSV file. The response lists every row, use view=summary for large files.",
             tags = {"Documents"},
             responses = {
                     @ApiResponse(description = "Ok", responseCode = "200", content =
@@ -185,6 +490,63 @@ public class DocumentController {
         return ResponseEntity.ok(updatedDocuments);
     }
 
+    @Operation(summary = "Update documents from CSV file, counting the rows",
+            description = "Update documents that its ids matches to the passed ones in a CSV file. Only returns how many rows were updated, for files too large to list in the response.",
+            tags = {"Documents"},
+            responses = {
+                    @ApiResponse(description = "Ok", responseCode = "200", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ImportResult.class)
+                    )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Not Found", responseCode = "404", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+            })
+    @PutMapping(
+        value = "/upload/update",
+        params = {"view=summary", "!async"},
+        consumes = {"multipart/form-data"},
+        produces = {"application/json"}
+    )
+    public ResponseEntity<ImportResult> updateDocumentsCsvSummary(@RequestPart("file") MultipartFile file) {
+        ImportResult result = documentService.updateFromCsvSummary(file);
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Update documents from CSV file asynchronously",
+            description = "Start a background update from the provided CSV file. Its progress is available at /api/imports/{id} from the same instance until it is restarted, see that endpoint.",
+            tags = {"Documents"},
+            responses = {
+                    @ApiResponse(description = "Accepted", responseCode = "202", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ImportJob.class)
+                    )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Service Unavailable", responseCode = "503",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @PutMapping(
+        value = "/upload/update",
+        params = "async=true",
+        consumes = {"multipart/form-data"},
+        produces = {"application/json"}
+    )
+    public ResponseEntity<ImportJob> updateDocumentsCsvAsync(@RequestPart("file") MultipartFile file) {
+        ImportJob job = importJobService.submit("documents.update", file, (input, progress) -> documentService.updateFromCsv(input, progress, chunk -> {}));
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/imports/{id}").buildAndExpand(job.getId()).toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
     @Operation(summary = "Delete document by id",
             description = "Delete a document that its id matches to the passed one.",
             tags = {"Documents"},
@@ -0,0 +1,46 @@
+package com.bureau.translateit.controllers;
+
+import com.bureau.translateit.models.ImportJob;
+import com.bureau.translateit.services.ImportJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/imports")
+public class ImportController {
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Operation(summary = "Get import job by id",
+            description = "Get the status and progress of an asynchronous CSV import. Jobs are tracked in memory by the instance that accepted the upload, " +
+                    "so behind a load balancer the poll has to reach that instance (sticky sessions), and a job is no longer found after a restart or once it is older than the retention. " +
+                    "A 404 for a job that was accepted means its outcome is unknown, check the imported records.",
+            tags = {"Imports"},
+            responses = {
+                    @ApiResponse(description = "Ok", responseCode = "200", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ImportJob.class)
+                    )),
+                    @ApiResponse(description = "Not Found, also for jobs of another instance or from before a restart", responseCode = "404", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @GetMapping(
+        value = "/{id}",
+        produces = {"application/json"}
+    )
+    public ResponseEntity<ImportJob> getImportJob(@PathVariable UUID id) {
+        ImportJob job = importJobService.getById(id);
+        return ResponseEntity.ok(job);
+    }
+}
@@ -1,9 +1,18 @@
 package com.bureau.translateit.controllers;
 
+import com.bureau.translateit.models.Document;
+import com.bureau.translateit.models.ImportJob;
 import com.bureau.translateit.models.Translator;
+import com.bureau.translateit.models.dtos.CountResult;
+import com.bureau.translateit.models.dtos.CursorPage;
+import com.bureau.translateit.models.dtos.ImportResult;
 import com.bureau.translateit.models.dtos.TranslatorDto;
+import com.bureau.translateit.services.DocumentService;
+import com.bureau.translateit.services.ImportJobService;
 import com.bureau.translateit.services.TranslatorService;
+import com.bureau.translateit.utils.ETags;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -12,10 +21,15 @@ import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.net.URI;
 import java.util.List;
 import java.util.UUID;
 
@@ -26,6 +40,12 @@ public class TranslatorController {
     @Autowired
     private TranslatorService translatorService;
 
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private DocumentService documentService;
+
     @Operation(summary = "Create new translator",
             description = "Create a new translator according to JSON format passed info.",
             tags = {"Translators"},
@@ -54,7 +74,7 @@ public class TranslatorController {
     }
 
     @Operation(summary = "Create new translators from CSV file",
-            description = "Create new translators according to provided CSV file.",
+            description = "Create new translators according to provided CSV file. The response lists every row, use view=summary for large files.",
             tags = {"Translators"},
             responses = {
                     @ApiResponse(description = "Created", responseCode = "201", content =
@@ -80,13 +100,73 @@ public class TranslatorController {
         return ResponseEntity.ok(translators);
     }
 
+    @Operation(summary = "Create new translators from CSV file, counting the rows",
+            description = "Create new translators according to provided CSV file. Only returns how many rows were created, for files too large to list in the response.",
+            tags = {"Translators"},
+            responses = {
+                    @ApiResponse(description = "Created", responseCode = "201", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ImportResult.class)
+                    )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Conflict", responseCode = "409",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @PostMapping(
+        value = "/upload/create",
+        params = {"view=summary", "!async"},
+        consumes = {"multipart/form-data"},
+        produces = {"application/json"}
+    )
+    public ResponseEntity<ImportResult> uploadTranslatorsCsvSummary(@RequestPart("file") MultipartFile file) {
+        ImportResult result = translatorService.createFromCsvSummary(file);
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Create new translators from CSV file asynchronously",
+            description = "Start a background import of the provided CSV file. Its progress is available at /api/imports/{id} from the same instance until it is restarted, see that endpoint.",
+            tags = {"Translators"},
+            responses = {
+                    @ApiResponse(description = "Accepted", responseCode = "202", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ImportJob.class)
+                    )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Service Unavailable", responseCode = "503",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @PostMapping(
+        value = "/upload/create",
+        params = "async=true",
+        consumes = {"multipart/form-data"},
+        produces = {"application/json"}
+    )
+    public ResponseEntity<ImportJob> uploadTranslatorsCsvAsync(@RequestPart("file") MultipartFile file) {
+        ImportJob job = importJobService.submit("translators.create", file, (input, progress) -> translatorService.createFromCsv(input, progress, chunk -> {}));
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/imports/{id}").buildAndExpand(job.getId()).toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
     @Operation(summary = "Get all translators or get a translator by email",
-            description = "Get all existing translators or a translator according to the passed email.",
+            description = "Get all existing translators or a translator according to the passed email. Each translator has its document count, use include=documents to get the documents too.",
             tags = {"Translators"},
             responses = {
                     @ApiResponse(description = "Ok", responseCode = "200", content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = Translator.class)
                     )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
                     @ApiResponse(description = "Not Found", responseCode = "404", content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
                     )),
@@ -97,9 +177,95 @@ public class TranslatorController {
     @GetMapping(produces = {"application/json"})
     public ResponseEntity<Page<Translator>> getTranslators(
             @RequestParam(required = false) String email,
+            @Parameter(description = "documents embeds each translator's documents, limited to 20 translators per page")
+            @RequestParam(required = false) String include,
             @ParameterObject Pageable pageable
     ) {
-        Page<Translator> translators = translatorService.getAll(email, pageable);
+        Page<Translator> translators;
+        if(include == null || include.isEmpty()) {
+            translators = translatorService.getAll(email, pageable);
+        } else if(include.equals("documents")) {
+            translators = translatorService.getAllWithDocuments(email, pageable);
+        } else {
+            throw new IllegalArgumentException("Invalid include: " + include + ". Use documents");
+        }
+        return ResponseEntity.ok(translators);
+    }
+
+    @Operation(summary = "Get translators without totals",
+            description = "Same as listing translators, but the response only tells if there's a next page and skips the count query.",
+            tags = {"Translators"},
+            responses = {
+                    @ApiResponse(description = "Ok", responseCode = "200", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = Translator.class)
+                    )),
+                    @ApiResponse(description = "Not Found", responseCode = "404", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @GetMapping(
+        params = "mode=slice",
+        produces = {"application/json"}
+    )
+    public ResponseEntity<Slice<Translator>> getTranslatorsSlice(
+            @RequestParam(required = false) String email,
+            @ParameterObject Pageable pageable
+    ) {
+        Slice<Translator> translators = translatorService.getSlice(email, pageable);
+        return ResponseEntity.ok(translators);
+    }
+
+    @Operation(summary = "Count translators",
+            description = "Get the total of translators. The value is cached for a short time.",
+            tags = {"Translators"},
+            responses = {
+                    @ApiResponse(description = "Ok", responseCode = "200", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = CountResult.class)
+                    )),
+                    @ApiResponse(description = "Not Found", responseCode = "404", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @GetMapping(
+        value = "/count",
+        produces = {"application/json"}
+    )
+    public ResponseEntity<CountResult> countTranslators() {
+        return ResponseEntity.ok(new CountResult(translatorService.count()));
+    }
+
+    @Operation(summary = "Scroll translators with a cursor",
+            description = "Get translators ordered by creation. Pass the returned nextCursor to get the following page.",
+            tags = {"Translators"},
+            responses = {
+                    @ApiResponse(description = "Ok", responseCode = "200", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPage.class)
+                    )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Not Found", responseCode = "404", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @GetMapping(
+        params = "mode=keyset",
+        produces = {"application/json"}
+    )
+    public ResponseEntity<CursorPage<Translator>> scrollTranslators(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        CursorPage<Translator> translators = translatorService.scroll(cursor, size);
         return ResponseEntity.ok(translators);
     }
 
@@ -113,6 +279,7 @@ public class TranslatorController {
                     @ApiResponse(description = "Not Found", responseCode = "404", content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
                     )),
+                    @ApiResponse(description = "Not Modified", responseCode = "304"),
                     @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
                     ))
@@ -121,9 +288,74 @@ public class TranslatorController {
         value = "/{id}",
         produces = {"application/json"}
     )
-    public ResponseEntity<Translator> getTranslatorById(@PathVariable UUID id) {
+    public ResponseEntity<Translator> getTranslatorById(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        //An unchanged translator is answered from its version alone, without loading or serializing it
+        if(ifNoneMatch != null) {
+            Long version = translatorService.getVersion(id);
+            if(version != null && ETags.matches(ifNoneMatch, version)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.of(version)).build();
+            }
+        }
+
         Translator translator = translatorService.getById(id);
-        return ResponseEntity.ok(translator);
+        return ResponseEntity.ok().eTag(ETags.of(translator.getVersion())).body(translator);
+    }
+
+    @Operation(summary = "Get documents of a translator",
+            description = "Get the documents of a translator page by page.",
+            tags = {"Translators"},
+            responses = {
+                    @ApiResponse(description = "Ok", responseCode = "200", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = Document.class)
+                    )),
+                    @ApiResponse(description = "Not Found", responseCode = "404", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @GetMapping(
+        value = "/{id}/documents",
+        produces = {"application/json"}
+    )
+    public ResponseEntity<Page<Document>> getTranslatorDocuments(@PathVariable UUID id, @ParameterObject Pageable pageable) {
+        Page<Document> documents = documentService.getByTranslator(id, pageable);
+        return ResponseEntity.ok(documents);
+    }
+
+    @Operation(summary = "Scroll documents of a translator with a cursor",
+            description = "Get the documents of a translator ordered by creation. Pass the returned nextCursor to get the following page.",
+            tags = {"Translators"},
+            responses = {
+                    @ApiResponse(description = "Ok", responseCode = "200", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPage.class)
+                    )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Not Found", responseCode = "404", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @GetMapping(
+        value = "/{id}/documents",
+        params = "mode=keyset",
+        produces = {"application/json"}
+    )
+    public ResponseEntity<CursorPage<Document>> scrollTranslatorDocuments(
+            @PathVariable UUID id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        CursorPage<Document> documents = documentService.scrollByTranslator(id, cursor, size);
+        return ResponseEntity.ok(documents);
     }
 
     @Operation(summary = "Update translator by id",
@@ -142,6 +374,9 @@ public class TranslatorController {
                     @ApiResponse(description = "Conflict", responseCode = "409", content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
                     )),
+                    @ApiResponse(description = "Precondition Failed", responseCode = "412", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
                     @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
                     ))
@@ -151,13 +386,17 @@ public class TranslatorController {
         consumes = {"application/json"},
         produces = {"application/json"}
     )
-    public ResponseEntity<Translator> updateTranslator(@PathVariable UUID id, @RequestBody @Valid TranslatorDto translatorDTO) {
-        Translator updatedTranslator = translatorService.update(id, translatorDTO);
-        return ResponseEntity.ok(updatedTranslator);
+    public ResponseEntity<Translator> updateTranslator(
+            @PathVariable UUID id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody @Valid TranslatorDto translatorDTO
+    ) {
+        Translator updatedTranslator = translatorService.update(id, translatorDTO, ETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(updatedTranslator.getVersion())).body(updatedTranslator);
     }
 
     @Operation(summary = "Update translators from CSV file",
-            description = "Update translators that its ids matches to the passed ones in a CSV file.",
+            description = "Update translators that its ids matches to the passed ones in a CSV file. The response lists every row, use view=summary for large files.",
             tags = {"Translators"},
             responses = {
                     @ApiResponse(description = "Ok", responseCode = "200", content =
@@ -186,6 +425,66 @@ public class TranslatorController {
         return ResponseEntity.ok(updatedTranslators);
     }
 
+    @Operation(summary = "Update translators from CSV file, counting the rows",
+            description = "Update translators that its ids matches to the passed ones in a CSV file. Only returns how many rows were updated, for files too large to list in the response.",
+            tags = {"Translators"},
+            responses = {
+                    @ApiResponse(description = "Ok", responseCode = "200", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ImportResult.class)
+                    )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Not Found", responseCode = "404", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Conflict", responseCode = "409", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @PutMapping(
+       value = "/upload/update",
+        params = {"view=summary", "!async"},
+       consumes = {"multipart/form-data"},
+       produces = {"application/json"}
+    )
+    public ResponseEntity<ImportResult> updateTranslatorsCsvSummary(@RequestPart("file") MultipartFile file) {
+        ImportResult result = translatorService.updateFromCsvSummary(file);
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(summary = "Update translators from CSV file asynchronously",
+            description = "Start a background update from the provided CSV file. Its progress is available at /api/imports/{id} from the same instance until it is restarted, see that endpoint.",
+            tags = {"Translators"},
+            responses = {
+                    @ApiResponse(description = "Accepted", responseCode = "202", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ImportJob.class)
+                    )),
+                    @ApiResponse(description = "Bad Request", responseCode = "400",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Service Unavailable", responseCode = "503",  content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    )),
+                    @ApiResponse(description = "Internal Server Error", responseCode = "500", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = String.class)
+                    ))
+    })
+    @PutMapping(
+        value = "/upload/update",
+        params = "async=true",
+        consumes = {"multipart/form-data"},
+        produces = {"application/json"}
+    )
+    public ResponseEntity<ImportJob> updateTranslatorsCsvAsync(@RequestPart("file") MultipartFile file) {
+        ImportJob job = importJobService.submit("translators.update", file, (input, progress) -> translatorService.updateFromCsv(input, progress, chunk -> {}));
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath().path("/api/imports/{id}").buildAndExpand(job.getId()).toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
     @Operation(summary = "Delete translator by id",
             description = "Delete a translator that its id matches to the passed one.",
             tags = {"Translators"},
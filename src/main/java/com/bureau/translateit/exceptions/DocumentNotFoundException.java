@@ -1,6 +1,8 @@
 package com.bureau.translateit.exceptions;
 
+import java.util.Collection;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 public class DocumentNotFoundException extends RuntimeException {
     public DocumentNotFoundException(String filter) {
@@ -10,4 +12,14 @@ public class DocumentNotFoundException extends RuntimeException {
     public DocumentNotFoundException(UUID id) {
         super("Document with id " + id.toString() + " not found");
     }
+
+    public DocumentNotFoundException(Collection<UUID> ids) {
+        super("Documents with ids " + ids.stream().map(UUID::toString).collect(Collectors.joining(", ")) + " not found");
+    }
+
+    //Only the first ids are listed when there are too many of them
+    public DocumentNotFoundException(Collection<UUID> ids, long total) {
+        super("Documents with ids " + ids.stream().map(UUID::toString).collect(Collectors.joining(", ")) +
+                (total > ids.size() ? " and " + (total - ids.size()) + " more (" + total + " in total)" : "") + " not found");
+    }
 }
@@ -0,0 +1,9 @@
+package com.bureau.translateit.exceptions;
+
+import java.util.UUID;
+
+public class ImportJobNotFoundException extends RuntimeException {
+    public ImportJobNotFoundException(UUID id) {
+        super("Import job with id: " + id + " not found.");
+    }
+}
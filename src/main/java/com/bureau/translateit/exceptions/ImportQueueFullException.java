@@ -0,0 +1,7 @@
+package com.bureau.translateit.exceptions;
+
+public class ImportQueueFullException extends RuntimeException {
+    public ImportQueueFullException() {
+        super("Too many imports are running right now. Please try again later.");
+    }
+}
@@ -1,7 +1,14 @@
 package com.bureau.translateit.exceptions;
 
 public class InvalidDocumentCsvException extends RuntimeException {
+
+    private static final String MESSAGE = "Invalid format: CSV file content should be id(only when uploading for update);subject;content;locale(optional);author";
+
     public InvalidDocumentCsvException() {
-        super("Invalid format: CSV file content should be id(only when uploading for update);subject;content;locale(optional);author");
+        super(MESSAGE);
+    }
+
+    public InvalidDocumentCsvException(long line) {
+        super("Line " + line + ": " + MESSAGE);
     }
 }
@@ -1,7 +1,14 @@
 package com.bureau.translateit.exceptions;
 
 public class InvalidTranslatorCsvException extends RuntimeException {
+
+    private static final String MESSAGE = "Invalid format: CSV file content should be id(only when uploading for update);name;email;source_language;target_language";
+
     public InvalidTranslatorCsvException() {
-        super("Invalid format: CSV file content should be id(only when uploading for update);name;email;source_language;target_language");
+        super(MESSAGE);
+    }
+
+    public InvalidTranslatorCsvException(long line) {
+        super("Line " + line + ": " + MESSAGE);
     }
 }
@@ -0,0 +1,7 @@
+package com.bureau.translateit.exceptions;
+
+public class OpenAiUnavailableException extends OpenAiException {
+    public OpenAiUnavailableException(String message) {
+        super(message);
+    }
+}
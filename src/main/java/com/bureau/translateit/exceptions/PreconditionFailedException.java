@@ -0,0 +1,7 @@
+package com.bureau.translateit.exceptions;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String ifMatch) {
+        super("The resource doesn't match If-Match: " + ifMatch + ". Get it again and retry with its current ETag.");
+    }
+}
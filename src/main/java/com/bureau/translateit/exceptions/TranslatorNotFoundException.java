@@ -1,12 +1,24 @@
 package com.bureau.translateit.exceptions;
 
+import java.util.Collection;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 public class TranslatorNotFoundException extends RuntimeException {
     public TranslatorNotFoundException(String email) {
         super("Translator with email: " + email + " not found.");
     }
 
+    public TranslatorNotFoundException(String field, Collection<?> values) {
+        super("Translators with " + field + ": " + values.stream().map(String::valueOf).collect(Collectors.joining(", ")) + " not found.");
+    }
+
+    //Only the first values are listed when there are too many of them
+    public TranslatorNotFoundException(String field, Collection<?> values, long total) {
+        super("Translators with " + field + ": " + values.stream().map(String::valueOf).collect(Collectors.joining(", ")) +
+                (total > values.size() ? " and " + (total - values.size()) + " more (" + total + " in total)" : "") + " not found.");
+    }
+
     public TranslatorNotFoundException(UUID id) {
         super("Translator with id: " + id + " not found.");
     }
@@ -0,0 +1,165 @@
+package com.bureau.translateit.locale;
+
+import com.bureau.translateit.exceptions.OpenAiException;
+import com.bureau.translateit.exceptions.OpenAiUnavailableException;
+import com.bureau.translateit.openai.OpenAiApiClient;
+import com.bureau.translateit.utils.ContentHash;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+@Service
+public class HybridLocaleDetector implements LocaleDetector {
+
+    @Autowired
+    private NgramLanguageIdentifier ngramLanguageIdentifier;
+
+    @Autowired
+    private LocaleCache localeCache;
+
+    @Autowired
+    private OpenAiApiClient openAiApiClient;
+
+    @Value("${locale.detection.ngram.min-confidence}")
+    private double minConfidence;
+
+    //Shared by every import, so the cap holds for the whole application and not per upload
+    private final Semaphore remotePermits;
+
+    public HybridLocaleDetector(@Value("${locale.detection.max-concurrency}") int maxConcurrency) {
+        this.remotePermits = new Semaphore(maxConcurrency, true);
+    }
+
+    @Override
+    public String detect(String content) {
+        //The local identifier answers the common locales, OpenAI is only asked when it isn't sure
+        String locale = detectLocally(content);
+        if(locale != null) {
+            return locale;
+        }
+        try {
+            return localeCache.getOrDetect(content, openAiApiClient::getLocale);
+        } catch (OpenAiUnavailableException e) {
+            return PENDING;
+        }
+    }
+
+    @Override
+    public String detectOrDefer(String content) {
+        String locale = detectLocally(content);
+        if(locale == null) locale = localeCache.get(content);
+        return locale != null ? locale : PENDING;
+    }
+
+    @Override
+    public List<String> detectAll(List<String> contents) {
+        String[] locales = new String[contents.size()];
+
+        List<Integer> unresolved = new ArrayList<>();
+        for(int i = 0; i < contents.size(); i++) {
+            locales[i] = detectLocally(contents.get(i));
+            if(locales[i] == null) unresolved.add(i);
+        }
+
+        //One bulk lookup in the cache for everything the local identifier wasn't sure about
+        Map<String, String> cached = localeCache.getAll(unresolved.stream().map(contents::get).toList());
+
+        //Texts that are the same once normalized are only sent once
+        Map<String, List<Integer>> remoteIndexes = new LinkedHashMap<>();
+        for(int i : unresolved) {
+            String content = contents.get(i);
+            String locale = cached.get(content);
+            if(locale != null) {
+                locales[i] = locale;
+            } else {
+                remoteIndexes.computeIfAbsent(ContentHash.normalize(content), key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        if(!remoteIndexes.isEmpty()) {
+            List<String> remoteContents = new ArrayList<>(remoteIndexes.size());
+            remoteIndexes.values().forEach(indexes -> remoteContents.add(contents.get(indexes.get(0))));
+
+            List<String> remoteLocales = detectRemotely(remoteContents);
+
+            Map<String, String> detected = new LinkedHashMap<>();
+            int position = 0;
+            for(List<Integer> indexes : remoteIndexes.values()) {
+                String locale = remoteLocales.get(position);
+                if(!locale.equals(PENDING)) detected.put(remoteContents.get(position), locale);
+                for(int index : indexes) {
+                    locales[index] = locale;
+                }
+                position++;
+            }
+            localeCache.putAll(detected);
+        }
+
+        return Arrays.asList(locales);
+    }
+
+    private String detectLocally(String content) {
+        NgramLanguageIdentifier.Detection detection = ngramLanguageIdentifier.identify(content);
+        return detection.confidence() >= minConfidence ? detection.locale() : null;
+    }
+
+    //Sends every batch on its own virtual thread, never more than max-concurrency at a time, and joins them back in order
+    private List<String> detectRemotely(List<String> contents) {
+        List<List<String>> batches = openAiApiClient.partition(contents);
+        if(batches.size() == 1) {
+            return withPermit(batches.get(0));
+        }
+
+        List<String> locales = new ArrayList<>(contents.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<String>>> futures = new ArrayList<>(batches.size());
+            for(List<String> batch : batches) {
+                futures.add(executor.submit(() -> withPermit(batch)));
+            }
+
+            try {
+                for(Future<List<String>> future : futures) {
+                    locales.addAll(future.get());
+                }
+            } catch (ExecutionException e) {
+                futures.forEach(future -> future.cancel(true));
+                if(e.getCause() instanceof OpenAiException openAiException) throw openAiException;
+                throw new OpenAiException(e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                futures.forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new OpenAiException("Locale detection was interrupted.");
+            }
+        }
+        return locales;
+    }
+
+    private List<String> withPermit(List<String> batch) {
+        try {
+            remotePermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OpenAiException("Locale detection was interrupted.");
+        }
+        try {
+            return openAiApiClient.getLocalesBatch(batch);
+        } catch (OpenAiUnavailableException e) {
+            //Only this batch waits for a later detection, the others keep their answers
+            return Collections.nCopies(batch.size(), PENDING);
+        } finally {
+            remotePermits.release();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.bureau.translateit.locale;
+
+import com.bureau.translateit.models.Document;
+import com.bureau.translateit.repositories.DocumentRepository;
+import com.bureau.translateit.repositories.PendingLocaleRepository;
+import com.bureau.translateit.repositories.PendingLocaleRepository.PendingDocument;
+import com.bureau.translateit.services.EntityCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Classifies the documents saved with the PENDING locale, either because detection was deferred
+//or because OpenAI was unavailable when they were written. Several nodes can run it at the same time:
+//each batch is claimed with a lease, detected without any transaction open and written back in one short statement
+@Component
+public class LocaleBackfillWorker implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(LocaleBackfillWorker.class);
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private PendingLocaleRepository pendingLocaleRepository;
+
+    @Autowired
+    private LocaleDetector localeDetector;
+
+    @Autowired
+    private EntityCache<Document> documentCache;
+
+    @Value("${locale.backfill.batch-size}")
+    private int batchSize;
+
+    @Value("${locale.backfill.max-batches}")
+    private int maxBatches;
+
+    //Longer than a detection can take with the scheduler wait, the retries and their backoff
+    @Value("${locale.backfill.lease-seconds}")
+    private long leaseSeconds;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private Counter drained;
+
+    @Scheduled(fixedDelayString = "${locale.backfill.interval-ms}", initialDelayString = "${locale.backfill.interval-ms}")
+    public void backfill() {
+        try {
+            //Bounded per tick so a large backlog doesn't keep the scheduler thread busy indefinitely
+            for(int i = 0; i < maxBatches; i++) {
+                if(backfillBatch() == 0) break;
+            }
+            backlog.set(documentRepository.countByLocale(LocaleDetector.PENDING));
+        } catch (Exception e) {
+            log.warn("Locale backfill failed, will retry on the next run", e);
+        }
+    }
+
+    //Returns how many documents got a locale, 0 when there is nothing left or OpenAI is still unavailable.
+    //Documents left pending keep their lease and are tried again once it has passed
+    private int backfillBatch() {
+        List<PendingDocument> documents = pendingLocaleRepository.claim(LocaleDetector.PENDING, batchSize, Duration.ofSeconds(leaseSeconds));
+        if(documents.isEmpty()) return 0;
+
+        List<String> locales = localeDetector.detectAll(documents.stream().map(PendingDocument::content).toList());
+
+        Map<UUID, String> detected = new LinkedHashMap<>();
+        for(int i = 0; i < documents.size(); i++) {
+            if(!LocaleDetector.PENDING.equals(locales.get(i))) detected.put(documents.get(i).id(), locales.get(i));
+        }
+        if(detected.isEmpty()) return 0;
+
+        List<UUID> completed = pendingLocaleRepository.complete(LocaleDetector.PENDING, detected);
+        completed.forEach(documentCache::invalidate);
+        if(drained != null) drained.increment(completed.size());
+        return detected.size();
+    }
+
+    public long getBacklog() {
+        return backlog.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("locale.backfill.backlog", backlog, AtomicLong::get).register(registry);
+        drained = Counter.builder("locale.backfill.drained").register(registry);
+    }
+}
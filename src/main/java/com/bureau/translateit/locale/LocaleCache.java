@@ -0,0 +1,157 @@
+package com.bureau.translateit.locale;
+
+import com.bureau.translateit.models.LocaleCacheEntry;
+import com.bureau.translateit.repositories.LocaleCacheRepository;
+import com.bureau.translateit.utils.BoundedTtlCache;
+import com.bureau.translateit.utils.ContentHash;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+//Two levels: a bounded in-memory cache per node in front of T_LOCALE_CACHE, which every node shares and survives deploys
+@Component
+public class LocaleCache implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(LocaleCache.class);
+
+    //Keeps the IN list of a bulk lookup at a size the database plans well
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private LocaleCacheRepository localeCacheRepository;
+
+    @Value("${locale.cache.retention-days}")
+    private long retentionDays;
+
+    private final BoundedTtlCache<String, String> cache;
+    private final AtomicLong storeHits = new AtomicLong();
+    private final AtomicLong storeMisses = new AtomicLong();
+
+    @Autowired
+    public LocaleCache(
+            @Value("${locale.cache.max-size}") int maxSize,
+            @Value("${locale.cache.ttl-minutes}") long ttlMinutes
+    ) {
+        this(maxSize, ttlMinutes, System::nanoTime);
+    }
+
+    LocaleCache(int maxSize, long ttlMinutes, LongSupplier nanoTime) {
+        this.cache = new BoundedTtlCache<>(maxSize, ttlMinutes * 60_000L, nanoTime);
+    }
+
+    public String get(String content) {
+        String hash = ContentHash.sha256(content);
+        String locale = cache.get(hash);
+        if(locale != null) return locale;
+
+        locale = localeCacheRepository.findById(hash).map(LocaleCacheEntry::getLocale).orElse(null);
+        if(locale != null) {
+            storeHits.incrementAndGet();
+            cache.put(hash, locale);
+        } else {
+            storeMisses.incrementAndGet();
+        }
+        return locale;
+    }
+
+    //Same as get for many contents, the ones missing in memory are looked up in the table with a few queries.
+    //Contents without a cached locale are left out of the result
+    public Map<String, String> getAll(List<String> contents) {
+        Map<String, String> locales = new HashMap<>();
+        Map<String, List<String>> missing = new LinkedHashMap<>();
+        for(String content : contents) {
+            String hash = ContentHash.sha256(content);
+            String locale = cache.get(hash);
+            if(locale != null) {
+                locales.put(content, locale);
+            } else {
+                missing.computeIfAbsent(hash, key -> new ArrayList<>()).add(content);
+            }
+        }
+
+        List<String> hashes = new ArrayList<>(missing.keySet());
+        for(int from = 0; from < hashes.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<String> chunk = hashes.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, hashes.size()));
+            for(LocaleCacheEntry entry : localeCacheRepository.findAllById(chunk)) {
+                cache.put(entry.getContentHash(), entry.getLocale());
+                missing.remove(entry.getContentHash()).forEach(content -> locales.put(content, entry.getLocale()));
+                storeHits.incrementAndGet();
+            }
+        }
+        storeMisses.addAndGet(missing.size());
+        return locales;
+    }
+
+    public void put(String content, String locale) {
+        putAll(Map.of(content, locale));
+    }
+
+    public void putAll(Map<String, String> localesByContent) {
+        Map<String, String> localesByHash = new HashMap<>();
+        localesByContent.forEach((content, locale) -> {
+            //Empty answers aren't cached, so the content can be classified again later
+            if(locale != null && !locale.isEmpty() && !locale.equals(LocaleDetector.PENDING)) {
+                String hash = ContentHash.sha256(content);
+                cache.put(hash, locale);
+                localesByHash.put(hash, locale);
+            }
+        });
+        localeCacheRepository.insertMissing(localesByHash);
+    }
+
+    public String getOrDetect(String content, Function<String, String> detector) {
+        String locale = get(content);
+        if(locale == null) {
+            locale = detector.apply(content);
+            put(content, locale);
+        }
+        return locale;
+    }
+
+    //The locale of a text doesn't change, the retention only bounds the size of the table
+    @Scheduled(cron = "${locale.cache.retention-cron}")
+    public void evictExpired() {
+        int deleted = localeCacheRepository.deleteCreatedBefore(Instant.now().minus(Duration.ofDays(retentionDays)));
+        if(deleted > 0) log.info("Evicted {} locale cache entries older than {} days", deleted, retentionDays);
+    }
+
+    public long getHits() {
+        return cache.getHits();
+    }
+
+    public long getMisses() {
+        return cache.getMisses();
+    }
+
+    public long getEvictions() {
+        return cache.getEvictions();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("locale.cache.hits", cache, BoundedTtlCache::getHits).register(registry);
+        FunctionCounter.builder("locale.cache.misses", cache, BoundedTtlCache::getMisses).register(registry);
+        FunctionCounter.builder("locale.cache.evictions", cache, BoundedTtlCache::getEvictions).register(registry);
+        Gauge.builder("locale.cache.size", cache, BoundedTtlCache::size).register(registry);
+        FunctionCounter.builder("locale.cache.store.hits", storeHits, AtomicLong::get).register(registry);
+        FunctionCounter.builder("locale.cache.store.misses", storeMisses, AtomicLong::get).register(registry);
+    }
+}
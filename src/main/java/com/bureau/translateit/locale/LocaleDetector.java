@@ -0,0 +1,20 @@
+package com.bureau.translateit.locale;
+
+import java.util.List;
+
+public interface LocaleDetector {
+
+    //Saved instead of a locale while OpenAI is unavailable, so the document can be classified later
+    String PENDING = "pending";
+
+    //Returns the locale code (en-US, es-ES, ...) of the content, an empty string when it can't be detected
+    //or PENDING when it has to be detected later
+    String detect(String content);
+
+    //Answers from the local identifier or the cache only, PENDING when OpenAI would have to be asked
+    String detectOrDefer(String content);
+
+    //Same as detect, for many contents at once. The result keeps the order of the contents
+    List<String> detectAll(List<String> contents);
+
+}
@@ -0,0 +1,179 @@
+package com.bureau.translateit.locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class NgramLanguageIdentifier {
+
+    private static final char BOUNDARY = ' ';
+
+    private final String[] locales;
+    private final double[] unseenLogProbabilities;
+    private final TrigramTable table;
+    private final int minTrigrams;
+
+    public record Detection(String locale, double confidence) {}
+
+    public NgramLanguageIdentifier(
+            @Value("${locale.detection.ngram.locales}") List<String> locales,
+            @Value("${locale.detection.ngram.min-trigrams}") int minTrigrams
+    ) {
+        this.locales = locales.toArray(String[]::new);
+        this.unseenLogProbabilities = new double[this.locales.length];
+        this.minTrigrams = minTrigrams;
+
+        List<Map<Long, Integer>> profiles = new ArrayList<>();
+        int distinctTrigrams = 0;
+        for(String locale : this.locales) {
+            Map<Long, Integer> profile = loadProfile(locale);
+            profiles.add(profile);
+            distinctTrigrams += profile.size();
+        }
+
+        //Every trigram maps to one row with its log probability in each profile (add-one smoothing)
+        this.table = new TrigramTable(distinctTrigrams);
+        for(int i = 0; i < this.locales.length; i++) {
+            Map<Long, Integer> profile = profiles.get(i);
+            long total = profile.values().stream().mapToLong(Integer::longValue).sum() + profile.size() + 1;
+            unseenLogProbabilities[i] = Math.log(1.0 / total);
+            for(Map.Entry<Long, Integer> trigram : profile.entrySet()) {
+                table.rowFor(trigram.getKey(), unseenLogProbabilities.length)[i] = (float) Math.log((trigram.getValue() + 1.0) / total);
+            }
+        }
+        table.fillUnseen(unseenLogProbabilities);
+    }
+
+    public Detection identify(String content) {
+        if(content == null || content.isBlank() || locales.length == 0) return new Detection("", 0);
+
+        double[] scores = new double[locales.length];
+        int trigrams = 0;
+        char first = BOUNDARY;
+        char second = BOUNDARY;
+
+        //Walks the text once, feeding word-padded trigrams straight into the scores without building strings
+        for(int i = 0, length = content.length(); i <= length; i++) {
+            char current = i < length ? normalize(content.charAt(i)) : BOUNDARY;
+            if(second == BOUNDARY) {
+                if(current == BOUNDARY) continue;
+            } else {
+                addTrigram(scores, first, second, current);
+                trigrams++;
+            }
+            first = second;
+            second = current;
+        }
+
+        if(trigrams == 0) return new Detection("", 0);
+
+        int best = 0;
+        for(int i = 1; i < scores.length; i++) {
+            if(scores[i] > scores[best]) best = i;
+        }
+
+        //Posterior of the best profile, damped for texts too short to be conclusive
+        double sum = 0;
+        for(double score : scores) {
+            sum += Math.exp(score - scores[best]);
+        }
+        double confidence = (1.0 / sum) * Math.min(1.0, (double) trigrams / minTrigrams);
+
+        return new Detection(locales[best], confidence);
+    }
+
+    private void addTrigram(double[] scores, char first, char second, char third) {
+        float[] row = table.get(key(first, second, third));
+        if(row == null) {
+            for(int i = 0; i < scores.length; i++) scores[i] += unseenLogProbabilities[i];
+        } else {
+            for(int i = 0; i < scores.length; i++) scores[i] += row[i];
+        }
+    }
+
+    private static char normalize(char c) {
+        return Character.isLetter(c) ? Character.toLowerCase(c) : BOUNDARY;
+    }
+
+    private static long key(char first, char second, char third) {
+        return ((long) first << 32) | ((long) second << 16) | third;
+    }
+
+    private static Map<Long, Integer> loadProfile(String locale) {
+        ClassPathResource resource = new ClassPathResource("locale-profiles/" + locale + ".txt");
+        Map<Long, Integer> profile = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                if(line.isBlank() || line.startsWith("#")) continue;
+                String[] columns = line.split("\t");
+                String trigram = columns[0].replace('_', BOUNDARY);
+                if(trigram.length() != 3) continue;
+                profile.merge(key(trigram.charAt(0), trigram.charAt(1), trigram.charAt(2)), Integer.parseInt(columns[1]), Integer::sum);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load the n-gram profile for " + locale, e);
+        }
+        return profile;
+    }
+
+    //Open addressing table from packed trigram keys to per-profile log probabilities
+    private static class TrigramTable {
+        private final long[] keys;
+        private final float[][] rows;
+        private final int mask;
+
+        TrigramTable(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+            this.keys = new long[capacity];
+            this.rows = new float[capacity][];
+            this.mask = capacity - 1;
+        }
+
+        float[] get(long key) {
+            for(int slot = hash(key); rows[slot] != null; slot = (slot + 1) & mask) {
+                if(keys[slot] == key) return rows[slot];
+            }
+            return null;
+        }
+
+        float[] rowFor(long key, int width) {
+            int slot = hash(key);
+            while(rows[slot] != null) {
+                if(keys[slot] == key) return rows[slot];
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            rows[slot] = new float[width];
+            Arrays.fill(rows[slot], Float.NaN);
+            return rows[slot];
+        }
+
+        //Profiles that don't contain a trigram score it as unseen
+        void fillUnseen(double[] unseen) {
+            for(float[] row : rows) {
+                if(row == null) continue;
+                for(int i = 0; i < row.length; i++) {
+                    if(Float.isNaN(row[i])) row[i] = (float) unseen[i];
+                }
+            }
+        }
+
+        private int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -1,8 +1,9 @@
 package com.bureau.translateit.models;
 
-import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.SourceType;
 
@@ -14,8 +15,11 @@ import java.util.UUID;
 @Table(
     name = "T_DOCUMENT",
     indexes = {
-        @Index(name = "idx_document_author", columnList = "author"),
-        @Index(name = "idx_document_locale_author", columnList = "locale,author")
+        @Index(name = "idx_document_created", columnList = "created_at,id"),
+        @Index(name = "idx_document_author_created", columnList = "author,created_at,id"),
+        @Index(name = "idx_document_locale_created", columnList = "locale,created_at,id"),
+        @Index(name = "idx_document_locale_author_created", columnList = "locale,author,created_at,id"),
+        @Index(name = "idx_document_translator_created", columnList = "translator_id,created_at,id")
     }
 )
 public class Document {
@@ -36,11 +40,23 @@ public class Document {
     @Column(nullable = false)
     private String author;
 
-    @CreationTimestamp(source = SourceType.DB)
+    //Generated in the VM: a database generated value has to be read back after each insert, which disables JDBC batching
+    @CreationTimestamp(source = SourceType.VM)
     private Instant createdAt;
 
+    //The default covers rows inserted with SQL, like the COPY bulk load
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private long version;
+
+    //Set while LocaleBackfillWorker classifies a pending document, another node only takes it over once it has passed
+    @Column
+    @JsonIgnore
+    private Instant localeClaimedUntil;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "translator_id", nullable = false)
-    @JsonBackReference
+    @JsonIgnore
     private Translator translator;
 }
\ No newline at end of file
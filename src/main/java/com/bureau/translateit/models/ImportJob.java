@@ -0,0 +1,134 @@
+package com.bureau.translateit.models;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ImportJob implements ImportProgress {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private final UUID id = UUID.randomUUID();
+    private final String type;
+    private final long totalBytes;
+    private final Instant createdAt = Instant.now();
+
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong rowsPersisted = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public ImportJob(String type, long totalBytes) {
+        this.type = type;
+        this.totalBytes = totalBytes;
+    }
+
+    @Override
+    public void rowParsed() {
+        rowsParsed.incrementAndGet();
+    }
+
+    @Override
+    public void rowsPersisted(int count) {
+        rowsPersisted.addAndGet(count);
+    }
+
+    public void bytesRead(long count) {
+        bytesRead.addAndGet(count);
+    }
+
+    public void start() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    public void complete() {
+        finishedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+
+    //An import runs in a single transaction, so the chunks flushed before a failure are rolled back with it
+    public void fail(String message) {
+        rowsFailed.set(Math.max(1, rowsParsed.get()));
+        rowsPersisted.set(0);
+        error = message;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getRowsParsed() {
+        return rowsParsed.get();
+    }
+
+    public long getRowsPersisted() {
+        return rowsPersisted.get();
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed.get();
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    //Parsed rows per second since the job started
+    public double getThroughput() {
+        double seconds = elapsedSeconds();
+        return seconds > 0 ? rowsParsed.get() / seconds : 0;
+    }
+
+    //Estimated from the share of the file read so far, since the row count is only known at the end
+    public Long getEtaSeconds() {
+        if(status != Status.RUNNING) return status == Status.COMPLETED ? 0L : null;
+        long read = bytesRead.get();
+        if(read == 0 || totalBytes <= 0) return null;
+        double remaining = Math.max(0, totalBytes - read) * elapsedSeconds() / read;
+        return Math.round(remaining);
+    }
+
+    public int getPercentRead() {
+        if(totalBytes <= 0) return isFinished() ? 100 : 0;
+        return (int) Math.min(100, bytesRead.get() * 100 / totalBytes);
+    }
+
+    private double elapsedSeconds() {
+        if(startedAt == null) return 0;
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        return Duration.between(startedAt, end).toMillis() / 1000.0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.bureau.translateit.models;
+
+public interface ImportProgress {
+
+    ImportProgress NONE = new ImportProgress() {
+        @Override
+        public void rowParsed() {
+        }
+
+        @Override
+        public void rowsPersisted(int count) {
+        }
+    };
+
+    void rowParsed();
+
+    void rowsPersisted(int count);
+
+}
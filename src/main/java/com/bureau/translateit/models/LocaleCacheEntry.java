@@ -0,0 +1,28 @@
+package com.bureau.translateit.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+//Locale detected for a content, shared by every node and kept across deploys. Keyed by the SHA-256 of the normalized text
+@Data
+@Entity
+@Table(
+    name = "T_LOCALE_CACHE",
+    indexes = {
+        @Index(name = "idx_locale_cache_created", columnList = "created_at")
+    }
+)
+public class LocaleCacheEntry {
+
+    @Id
+    @Column(length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private String locale;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+}
@@ -1,9 +1,17 @@
 package com.bureau.translateit.models;
 
-import com.fasterxml.jackson.annotation.JsonManagedReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.SourceType;
 
 import java.time.Instant;
@@ -17,8 +25,11 @@ import java.util.UUID;
     name = "T_TRANSLATOR",
     indexes = {
         @Index(name = "idx_translator_email", columnList = "email"),
+        @Index(name = "idx_translator_created", columnList = "created_at,id"),
     }
 )
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "translators")
+@NaturalIdCache(region = "translator-emails")
 public class Translator {
 
     @Id
@@ -28,6 +39,8 @@ public class Translator {
     @Column(nullable = false)
     private String name;
 
+    //Emails can change, lookups by email go through the natural id cache
+    @NaturalId(mutable = true)
     @Column(nullable = false, unique = true)
     private String email;
 
@@ -37,10 +50,32 @@ public class Translator {
     @Column(name = "target_language", nullable = false)
     private String targetLanguage;
 
-    @CreationTimestamp(source = SourceType.DB)
+    @CreationTimestamp(source = SourceType.VM)
     private Instant createdAt;
 
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private long version;
+
     @OneToMany(mappedBy = "translator", cascade = CascadeType.REMOVE, fetch = FetchType.LAZY)
-    @JsonManagedReference
+    @JsonIgnore
     private List<Document> documents = new ArrayList<>();
+
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long documentCount;
+
+    //Set by the listings that fetch the documents with the translator
+    @Transient
+    @JsonIgnore
+    private boolean documentsFetched;
+
+    //Documents are only serialized when they were fetched with the translator, never loaded lazily for the response.
+    //A translator that was just created or updated has an initialized collection too, it is left out the same way
+    @JsonProperty("documents")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public List<Document> getFetchedDocuments() {
+        return documentsFetched && Hibernate.isInitialized(documents) ? documents : null;
+    }
 }
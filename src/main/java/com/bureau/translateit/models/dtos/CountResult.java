@@ -0,0 +1,4 @@
+package com.bureau.translateit.models.dtos;
+
+public record CountResult(long count) {
+}
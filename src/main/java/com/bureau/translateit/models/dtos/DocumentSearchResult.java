@@ -0,0 +1,13 @@
+package com.bureau.translateit.models.dtos;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public interface DocumentSearchResult {
+    UUID getId();
+    String getSubject();
+    String getLocale();
+    String getAuthor();
+    Instant getCreatedAt();
+    double getRank();
+}
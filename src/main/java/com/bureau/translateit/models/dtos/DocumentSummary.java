@@ -0,0 +1,7 @@
+package com.bureau.translateit.models.dtos;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record DocumentSummary(UUID id, String subject, String locale, String author, Instant createdAt) {
+}
@@ -0,0 +1,6 @@
+package com.bureau.translateit.models.dtos;
+
+import java.util.UUID;
+
+public record TranslatorDocumentCount(UUID translatorId, long documents) {
+}
@@ -0,0 +1,50 @@
+package com.bureau.translateit.openai;
+
+//Opens after a number of failed calls in a row, then lets a single trial call through once the open time is over
+public class CircuitBreaker {
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        if(failureThreshold <= 0 || openMillis <= 0) {
+            throw new IllegalArgumentException("Circuit breaker threshold and open time should be greater than zero.");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMillis * 1_000_000L;
+    }
+
+    public synchronized boolean tryAcquire() {
+        //A trial that never reported back is replaced by a new one after another open time
+        long now = System.nanoTime();
+        if(state != State.CLOSED && now - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            openedAt = now;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    public synchronized void recordFailure() {
+        if(state == State.HALF_OPEN || ++failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            failures = 0;
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+}
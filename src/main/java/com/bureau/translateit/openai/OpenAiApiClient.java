@@ -1,41 +1,215 @@
 package com.bureau.translateit.openai;
 
 import com.bureau.translateit.exceptions.OpenAiException;
+import com.bureau.translateit.exceptions.OpenAiUnavailableException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Component
 public class OpenAiApiClient {
 
+    //Rough size of the instructions and JSON framing around each text, in tokens
+    private static final int PROMPT_OVERHEAD_TOKENS = 60;
+    private static final int ITEM_OVERHEAD_TOKENS = 8;
+    private static final int OUTPUT_TOKENS_PER_ITEM = 10;
+
     private final RestTemplate restTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final OpenAiRequestScheduler scheduler;
     private final ObjectMapper objectMapper;
     private final String apiKey;
-    private final String apiUrl = "https://api.openai.com/v1/chat/completions";
+    private final String apiUrl;
+    private final int batchMaxTokens;
+    private final int batchMaxItems;
+    private final int retryMaxAttempts;
+    private final long retryBaseDelayMs;
+    private final long retryMaxElapsedMs;
 
-    public OpenAiApiClient(@Value("${openai.api.key}") String apiKey) {
-        this.restTemplate = new RestTemplate();
+    public OpenAiApiClient(
+            @Qualifier("openAiRestTemplate") RestTemplate restTemplate,
+            @Qualifier("openAiCircuitBreaker") CircuitBreaker circuitBreaker,
+            OpenAiRequestScheduler scheduler,
+            @Value("${openai.api.key}") String apiKey,
+            @Value("${openai.api.url}") String apiUrl,
+            @Value("${openai.batch.max-tokens}") int batchMaxTokens,
+            @Value("${openai.batch.max-items}") int batchMaxItems,
+            @Value("${openai.retry.max-attempts}") int retryMaxAttempts,
+            @Value("${openai.retry.base-delay-ms}") long retryBaseDelayMs,
+            @Value("${openai.retry.max-elapsed-ms}") long retryMaxElapsedMs
+    ) {
+        this.restTemplate = restTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.scheduler = scheduler;
         this.objectMapper = new ObjectMapper();
         this.apiKey = apiKey;
+        this.apiUrl = apiUrl;
+        this.batchMaxTokens = batchMaxTokens;
+        this.batchMaxItems = batchMaxItems;
+        this.retryMaxAttempts = retryMaxAttempts;
+        this.retryBaseDelayMs = retryBaseDelayMs;
+        this.retryMaxElapsedMs = retryMaxElapsedMs;
     }
 
+    //Single documents are created interactively, so they go ahead of the import batches
     public String getLocale(String content) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", "Bearer " + apiKey);
-        headers.set("Content-Type", "application/json");
+        return getLocale(content, OpenAiRequestScheduler.Priority.INTERACTIVE);
+    }
 
+    private String getLocale(String content, OpenAiRequestScheduler.Priority priority) {
         String prompt = "Analyze the following text and return its language locale (en-US, es-ES, fr-FR). Return only the locale code.\nText: " + content;
 
-        Map<String, Object> requestBody = Map.of(
+        try {
+            String locale = complete(prompt, 10, false, priority);
+            return locale.isEmpty() ? "" : locale;
+        } catch (OpenAiException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OpenAiException(e.getMessage());
+        }
+    }
+
+    public List<List<String>> partition(List<String> contents) {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> batch = new ArrayList<>();
+        int batchTokens = PROMPT_OVERHEAD_TOKENS;
+
+        for(String content : contents) {
+            int tokens = estimateTokens(content) + ITEM_OVERHEAD_TOKENS + OUTPUT_TOKENS_PER_ITEM;
+            if(!batch.isEmpty() && (batchTokens + tokens > batchMaxTokens || batch.size() >= batchMaxItems)) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                batchTokens = PROMPT_OVERHEAD_TOKENS;
+            }
+            batch.add(content);
+            batchTokens += tokens;
+        }
+        if(!batch.isEmpty()) batches.add(batch);
+
+        return batches;
+    }
+
+    public List<String> getLocalesBatch(List<String> contents) {
+        if(contents.size() == 1) return List.of(getLocale(contents.get(0), OpenAiRequestScheduler.Priority.BULK));
+
+        StringBuilder prompt = new StringBuilder("Analyze each of the following numbered texts and return its language locale (en-US, es-ES, fr-FR). ")
+                .append("Answer with a JSON object mapping each text number to its locale code, like {\"0\": \"en-US\", \"1\": \"fr-FR\"}.\n");
+        for(int i = 0; i < contents.size(); i++) {
+            prompt.append("Text ").append(i).append(": ").append(contents.get(i).replace('\n', ' ')).append('\n');
+        }
+
+        try {
+            JsonNode answer = objectMapper.readTree(complete(prompt.toString(), contents.size() * OUTPUT_TOKENS_PER_ITEM + 20, true, OpenAiRequestScheduler.Priority.BULK));
+            List<String> locales = new ArrayList<>(contents.size());
+            for(int i = 0; i < contents.size(); i++) {
+                //Texts the model skipped come back empty, like a blank single answer
+                locales.add(answer.path(String.valueOf(i)).asText("").trim());
+            }
+            return locales;
+        } catch (OpenAiException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OpenAiException(e.getMessage());
+        }
+    }
+
+    public static int estimateTokens(String content) {
+        //About four characters per token for latin scripts
+        return content == null ? 0 : (content.length() + 3) / 4;
+    }
+
+    //Retries throttling, server errors and timeouts with jittered backoff. When OpenAI keeps failing the circuit opens
+    //and calls fail fast with OpenAiUnavailableException until it is tried again
+    private String complete(String prompt, int maxTokens, boolean jsonAnswer, OpenAiRequestScheduler.Priority priority) throws Exception {
+        if(!circuitBreaker.tryAcquire()) {
+            throw new OpenAiUnavailableException("OpenAI is unavailable, locale detection is postponed.");
+        }
+
+        String jsonBody = requestBody(prompt, maxTokens, jsonAnswer);
+        int estimatedTokens = estimateTokens(prompt) + maxTokens;
+        long deadline = System.nanoTime() + retryMaxElapsedMs * 1_000_000L;
+        for(int attempt = 1; ; attempt++) {
+            long delayMs;
+            try {
+                String content = scheduler.execute(priority, estimatedTokens, () -> send(jsonBody));
+                circuitBreaker.recordSuccess();
+                return content;
+            } catch (HttpStatusCodeException e) {
+                if(e.getStatusCode().value() != 429 && !e.getStatusCode().is5xxServerError()) {
+                    //The service answered, the request itself is wrong
+                    circuitBreaker.recordSuccess();
+                    throw e;
+                }
+                delayMs = Math.max(backoffDelay(attempt), retryAfter(e.getResponseHeaders()));
+            } catch (ResourceAccessException | CancellationException e) {
+                //The JDK request factory can report a read timeout as a cancelled response instead of an I/O error
+                delayMs = backoffDelay(attempt);
+            } catch (OpenAiUnavailableException e) {
+                //Waited too long for the rate limits, OpenAI itself wasn't called
+                throw e;
+            } catch (Exception e) {
+                circuitBreaker.recordSuccess();
+                throw e;
+            }
+
+            if(attempt >= retryMaxAttempts || System.nanoTime() + delayMs * 1_000_000L > deadline) {
+                circuitBreaker.recordFailure();
+                throw new OpenAiUnavailableException("OpenAI didn't answer after " + attempt + " attempts, locale detection is postponed.");
+            }
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OpenAiUnavailableException("Locale detection was interrupted.");
+            }
+        }
+    }
+
+    //Full jitter: anywhere between zero and the exponential delay of this attempt
+    private long backoffDelay(int attempt) {
+        long exponential = retryBaseDelayMs << Math.min(attempt - 1, 16);
+        return ThreadLocalRandom.current().nextLong(exponential + 1);
+    }
+
+    //Retry-After comes either in seconds or as an HTTP date
+    private static long retryAfter(HttpHeaders headers) {
+        String value = headers == null ? null : headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if(value == null) return 0;
+        try {
+            return Long.parseLong(value.trim()) * 1000L;
+        } catch (NumberFormatException e) {
+            try {
+                return Math.max(0, Duration.between(Instant.now(), ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)).toMillis());
+            } catch (DateTimeParseException ignored) {
+                return 0;
+            }
+        }
+    }
+
+    private String requestBody(String prompt, int maxTokens, boolean jsonAnswer) throws Exception {
+        Map<String, Object> requestBody = new HashMap<>(Map.of(
                 "model", "gpt-3.5-turbo",
                 "messages", Collections.singletonList(
                         Map.of(
@@ -43,22 +217,26 @@ public class OpenAiApiClient {
                                 "content", prompt
                         )
                 ),
-                "max_tokens", 10,
+                "max_tokens", maxTokens,
                 "temperature", 0.3
-        );
+        ));
+        if(jsonAnswer) {
+            requestBody.put("response_format", Map.of("type", "json_object"));
+        }
 
-        try {
-            String jsonBody = objectMapper.writeValueAsString(requestBody);
+        return objectMapper.writeValueAsString(requestBody);
+    }
+
+    private String send(String jsonBody) throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", "Bearer " + apiKey);
+        headers.set("Content-Type", "application/json");
 
-            HttpEntity<String> entity = new HttpEntity<>(jsonBody, headers);
-            ResponseEntity<String> response = restTemplate.exchange(apiUrl, HttpMethod.POST, entity, String.class);
+        HttpEntity<String> entity = new HttpEntity<>(jsonBody, headers);
+        ResponseEntity<String> response = restTemplate.exchange(apiUrl, HttpMethod.POST, entity, String.class);
 
-            String responseBody = response.getBody();
-            JsonNode root = objectMapper.readTree(responseBody);
-            String locale = root.path("choices").get(0).path("message").path("content").asText();
-            return locale.isEmpty() ? "" : locale;
-        } catch (Exception e) {
-            throw new OpenAiException(e.getMessage());
-        }
+        String responseBody = response.getBody();
+        JsonNode root = objectMapper.readTree(responseBody);
+        return root.path("choices").get(0).path("message").path("content").asText();
     }
 }
@@ -0,0 +1,216 @@
+package com.bureau.translateit.openai;
+
+import com.bureau.translateit.exceptions.OpenAiUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Admits OpenAI calls within the requests/minute and tokens/minute budgets and under a concurrency limit that adapts
+//AIMD style: it grows slowly while calls are fast and halves on throttling or slow answers.
+//Interactive calls always go ahead of the bulk ones waiting
+@Component
+public class OpenAiRequestScheduler implements MeterBinder {
+
+    public enum Priority { INTERACTIVE, BULK }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Ticket> waiting = new PriorityQueue<>();
+
+    private final TokenBucket requests;
+    private final TokenBucket tokens;
+    private final double minConcurrency;
+    private final double maxConcurrency;
+    private final long targetLatencyNanos;
+    private final long maxWaitNanos;
+
+    private double concurrencyLimit;
+    private int inFlight;
+    private long sequence;
+    private long lastDecrease;
+
+    public OpenAiRequestScheduler(
+            @Value("${openai.limits.requests-per-minute}") int requestsPerMinute,
+            @Value("${openai.limits.tokens-per-minute}") int tokensPerMinute,
+            @Value("${openai.limits.max-wait-ms}") long maxWaitMs,
+            @Value("${openai.concurrency.initial}") int initialConcurrency,
+            @Value("${openai.concurrency.min}") int minConcurrency,
+            @Value("${openai.concurrency.max}") int maxConcurrency,
+            @Value("${openai.concurrency.target-latency-ms}") long targetLatencyMs
+    ) {
+        this.requests = new TokenBucket(requestsPerMinute);
+        this.tokens = new TokenBucket(tokensPerMinute);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.concurrencyLimit = initialConcurrency;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+        this.lastDecrease = System.nanoTime() - targetLatencyNanos;
+    }
+
+    public <T> T execute(Priority priority, int estimatedTokens, Callable<T> call) throws Exception {
+        acquire(priority, estimatedTokens);
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            onSuccess(System.nanoTime() - start);
+            return result;
+        } catch (HttpStatusCodeException e) {
+            if(e.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()) decrease();
+            throw e;
+        } finally {
+            release();
+        }
+    }
+
+    private void acquire(Priority priority, int estimatedTokens) throws InterruptedException {
+        lock.lock();
+        try {
+            Ticket ticket = new Ticket(priority, sequence++, Math.min(estimatedTokens, tokens.capacity));
+            waiting.add(ticket);
+            long deadline = System.nanoTime() + maxWaitNanos;
+            try {
+                while(true) {
+                    long now = System.nanoTime();
+                    long waitNanos = deadline - now;
+                    if(waiting.peek() == ticket && inFlight < concurrencyLimit) {
+                        long refillNanos = Math.max(requests.nanosUntil(1, now), tokens.nanosUntil(ticket.tokens, now));
+                        if(refillNanos == 0) {
+                            requests.take(1);
+                            tokens.take(ticket.tokens);
+                            inFlight++;
+                            return;
+                        }
+                        waitNanos = Math.min(waitNanos, refillNanos);
+                    }
+                    if(deadline - now <= 0) {
+                        throw new OpenAiUnavailableException("OpenAI rate limit reached, locale detection is postponed.");
+                    }
+                    changed.awaitNanos(waitNanos);
+                }
+            } finally {
+                waiting.remove(ticket);
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSuccess(long latencyNanos) {
+        if(latencyNanos > targetLatencyNanos) {
+            decrease();
+            return;
+        }
+        lock.lock();
+        try {
+            //About one more call per limit's worth of fast answers
+            concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1 / concurrencyLimit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease() {
+        lock.lock();
+        try {
+            //Calls that were already in flight report the same congestion, only the first one halves the limit
+            long now = System.nanoTime();
+            if(now - lastDecrease < targetLatencyNanos) return;
+            concurrencyLimit = Math.max(minConcurrency, concurrencyLimit / 2);
+            lastDecrease = now;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getConcurrencyLimit() {
+        lock.lock();
+        try {
+            return concurrencyLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiting() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("openai.scheduler.concurrency.limit", this, OpenAiRequestScheduler::getConcurrencyLimit).register(registry);
+        Gauge.builder("openai.scheduler.in.flight", this, OpenAiRequestScheduler::getInFlight).register(registry);
+        Gauge.builder("openai.scheduler.waiting", this, OpenAiRequestScheduler::getWaiting).register(registry);
+    }
+
+    private record Ticket(Priority priority, long sequence, int tokens) implements Comparable<Ticket> {
+        @Override
+        public int compareTo(Ticket other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    //Refills continuously, a full bucket holds one minute of budget. Only used under the scheduler lock
+    private static class TokenBucket {
+
+        private final int capacity;
+        private final double perNano;
+        private double available;
+        private long refilledAt = System.nanoTime();
+
+        TokenBucket(int perMinute) {
+            if(perMinute <= 0) {
+                throw new IllegalArgumentException("OpenAI rate limits should be greater than zero.");
+            }
+            this.capacity = perMinute;
+            this.perNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.available = perMinute;
+        }
+
+        long nanosUntil(int amount, long now) {
+            available = Math.min(capacity, available + (now - refilledAt) * perNano);
+            refilledAt = now;
+            return available >= amount ? 0 : (long) Math.ceil((amount - available) / perNano);
+        }
+
+        void take(int amount) {
+            available -= amount;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.bureau.translateit.repositories;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+//Set-based load of T_DOCUMENT through a COPY staging table. Must run inside a transaction, the staging table is dropped on commit
+@Repository
+public class DocumentBulkRepository {
+
+    private static final String STAGING_TABLE = "t_document_staging";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public void createStagingTable() {
+        jdbcTemplate.execute("CREATE TEMP TABLE " + STAGING_TABLE + " (" +
+                "line_number bigint NOT NULL, " +
+                "subject varchar(255) NOT NULL, " +
+                "content text NOT NULL, " +
+                "locale varchar(255), " +
+                "author varchar(255) NOT NULL" +
+                ") ON COMMIT DROP");
+    }
+
+    public StagingCopy openStagingCopy() {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "COPY " + STAGING_TABLE + " (line_number, subject, content, locale, author) FROM STDIN WITH (FORMAT csv)");
+            return new StagingCopy(connection, copyIn);
+        } catch (SQLException e) {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+            throw translate("COPY", e);
+        }
+    }
+
+    public long countMissingAuthors() {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(DISTINCT s.author) FROM " + STAGING_TABLE + " s " +
+                "LEFT JOIN t_translator t ON t.email = s.author " +
+                "WHERE t.id IS NULL",
+                Long.class);
+    }
+
+    public List<String> findMissingAuthors(int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT s.author FROM " + STAGING_TABLE + " s " +
+                "LEFT JOIN t_translator t ON t.email = s.author " +
+                "WHERE t.id IS NULL ORDER BY s.author LIMIT ?",
+                String.class, limit);
+    }
+
+    //Every staged row is inserted, like the JPA import path, which doesn't look for duplicates either
+    public int mergeStaged() {
+        jdbcTemplate.execute("ANALYZE " + STAGING_TABLE);
+        return jdbcTemplate.update(
+                "INSERT INTO t_document (id, subject, content, locale, author, translator_id, created_at) " +
+                "SELECT gen_random_uuid(), s.subject, s.content, s.locale, s.author, t.id, now() " +
+                "FROM " + STAGING_TABLE + " s " +
+                "JOIN t_translator t ON t.email = s.author");
+    }
+
+    private RuntimeException translate(String task, SQLException e) {
+        RuntimeException translated = jdbcTemplate.getExceptionTranslator().translate(task, null, e);
+        return translated != null ? translated : new IllegalStateException(e);
+    }
+
+    public class StagingCopy implements AutoCloseable {
+
+        private final Connection connection;
+        private final CopyIn copyIn;
+        private final StringBuilder line = new StringBuilder(256);
+
+        private StagingCopy(Connection connection, CopyIn copyIn) {
+            this.connection = connection;
+            this.copyIn = copyIn;
+        }
+
+        public void write(long lineNumber, String subject, String content, String locale, String author) {
+            line.setLength(0);
+            line.append(lineNumber).append(',');
+            appendField(subject).append(',');
+            appendField(content).append(',');
+            if(locale != null) appendField(locale);
+            line.append(',');
+            appendField(author).append('\n');
+
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            try {
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+            } catch (SQLException e) {
+                throw translate("COPY", e);
+            }
+        }
+
+        public long finish() {
+            try {
+                return copyIn.endCopy();
+            } catch (SQLException e) {
+                throw translate("COPY", e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                if(copyIn.isActive()) copyIn.cancelCopy();
+            } catch (SQLException e) {
+                throw translate("COPY", e);
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        }
+
+        //Quoted fields keep empty strings apart from NULL
+        private StringBuilder appendField(String value) {
+            line.append('"');
+            for(int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if(c == '"') line.append('"');
+                line.append(c);
+            }
+            return line.append('"');
+        }
+    }
+}
@@ -1,21 +1,90 @@
 package com.bureau.translateit.repositories;
 
 import com.bureau.translateit.models.Document;
+import com.bureau.translateit.models.dtos.DocumentSearchResult;
+import com.bureau.translateit.models.dtos.DocumentSummary;
+import com.bureau.translateit.models.dtos.TranslatorDocumentCount;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface DocumentRepository extends JpaRepository<Document, UUID> {
     Page<Document> findByAuthorAndLocale(String author, String locale, Pageable pageable);
     Page<Document> findByLocale(String locale, Pageable pageable);
     Page<Document> findByAuthor(String author, Pageable pageable);
+    //Summary projections only select the record's columns, content is never read
+    Page<DocumentSummary> findSummaryByAuthorAndLocale(String author, String locale, Pageable pageable);
+    Page<DocumentSummary> findSummaryByLocale(String locale, Pageable pageable);
+    Page<DocumentSummary> findSummaryByAuthor(String author, Pageable pageable);
+    Page<DocumentSummary> findSummaryBy(Pageable pageable);
+    Slice<Document> findSliceByAuthorAndLocale(String author, String locale, Pageable pageable);
+    Slice<Document> findSliceByLocale(String locale, Pageable pageable);
+    Slice<Document> findSliceByAuthor(String author, Pageable pageable);
+    Slice<Document> findSliceBy(Pageable pageable);
+    long countByAuthorAndLocale(String author, String locale);
+    long countByLocale(String locale);
+    long countByAuthor(String author);
+    Page<Document> findByTranslatorId(UUID translatorId, Pageable pageable);
+    Window<Document> findByTranslatorIdOrderByCreatedAtAscIdAsc(UUID translatorId, ScrollPosition position, Limit limit);
+    Window<Document> findAllByOrderByCreatedAtAscIdAsc(ScrollPosition position, Limit limit);
+    Window<Document> findByAuthorOrderByCreatedAtAscIdAsc(String author, ScrollPosition position, Limit limit);
+    Window<Document> findByLocaleOrderByCreatedAtAscIdAsc(String locale, ScrollPosition position, Limit limit);
+    Window<Document> findByAuthorAndLocaleOrderByCreatedAtAscIdAsc(String author, String locale, ScrollPosition position, Limit limit);
+    @Query("select d.version from Document d where d.id = :id")
+    Optional<Long> findVersionById(UUID id);
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Document> streamByAuthorAndLocale(String author, String locale);
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Document> streamByLocale(String locale);
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Document> streamByAuthor(String author);
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Document> streamAllBy();
+    //Uses the search_vector column and its GIN index, see db/migrations/001_document_search.sql.
+    //A slice, counting every match again for each page would cost as much as the search itself
+    @Query(
+        value = """
+            SELECT d.id AS id, d.subject AS subject, d.locale AS locale, d.author AS author, d.created_at AS "createdAt",
+                   ts_rank(d.search_vector, tsq) AS rank
+            FROM t_document d, websearch_to_tsquery(locale_ts_config(:locale), :text) tsq
+            WHERE d.search_vector @@ tsq AND (CAST(:locale AS text) IS NULL OR d.locale = :locale)
+            ORDER BY rank DESC, d.id
+            """,
+        nativeQuery = true
+    )
+    Slice<DocumentSearchResult> search(String text, String locale, Pageable pageable);
+    @Query("select new com.bureau.translateit.models.dtos.TranslatorDocumentCount(d.translator.id, count(d)) from Document d where d.translator.id in :translatorIds group by d.translator.id")
+    List<TranslatorDocumentCount> countByTranslatorIds(Collection<UUID> translatorIds);
     @Transactional
     @Modifying
-    @Query("UPDATE Document d set d.author = :newAuthor where d.author = :author")
+    @Query("UPDATE Document d set d.author = :newAuthor, d.version = d.version + 1 where d.author = :author")
     void updateAuthor(String author, String newAuthor);
 }
@@ -0,0 +1,16 @@
+package com.bureau.translateit.repositories;
+
+import com.bureau.translateit.models.LocaleCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface LocaleCacheRepository extends JpaRepository<LocaleCacheEntry, String>, LocaleCacheRepositoryCustom {
+    @Transactional
+    @Modifying
+    @Query("delete from LocaleCacheEntry e where e.createdAt < :cutoff")
+    int deleteCreatedBefore(Instant cutoff);
+}
@@ -0,0 +1,7 @@
+package com.bureau.translateit.repositories;
+
+import java.util.Map;
+
+public interface LocaleCacheRepositoryCustom {
+    void insertMissing(Map<String, String> localesByHash);
+}
@@ -0,0 +1,30 @@
+package com.bureau.translateit.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class LocaleCacheRepositoryCustomImpl implements LocaleCacheRepositoryCustom {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    //Another node may have stored the same content in the meantime, the first answer is kept instead of failing on the key
+    @Override
+    public void insertMissing(Map<String, String> localesByHash) {
+        if(localesByHash.isEmpty()) return;
+
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(localesByHash.size());
+        localesByHash.forEach((hash, locale) -> rows.add(new Object[]{hash, locale, now}));
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO t_locale_cache (content_hash, locale, created_at) VALUES (?, ?, ?) ON CONFLICT DO NOTHING",
+                rows);
+    }
+}
@@ -0,0 +1,58 @@
+package com.bureau.translateit.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+//Documents waiting for LocaleBackfillWorker. Each call is a single statement, no lock is held while the locales are detected
+@Repository
+public class PendingLocaleRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    //Claims up to limit documents with the pending locale for the lease, oldest first. Rows locked or leased by another node are skipped.
+    //RETURNING doesn't follow the order of the subquery, the claimed rows are sorted again
+    public List<PendingDocument> claim(String pendingLocale, int limit, Duration lease) {
+        Instant now = Instant.now();
+        return jdbcTemplate.query(
+                "WITH claimed AS (" +
+                "  UPDATE t_document SET locale_claimed_until = ? WHERE id IN (" +
+                "    SELECT id FROM t_document WHERE locale = ? AND (locale_claimed_until IS NULL OR locale_claimed_until < ?) " +
+                "    ORDER BY created_at, id LIMIT ? FOR UPDATE SKIP LOCKED" +
+                "  ) RETURNING id, content, created_at" +
+                ") SELECT id, content FROM claimed ORDER BY created_at, id",
+                (rs, rowNum) -> new PendingDocument(rs.getObject("id", UUID.class), rs.getString("content")),
+                Timestamp.from(now.plus(lease)), pendingLocale, Timestamp.from(now), limit);
+    }
+
+    //Only documents still pending are written, a locale set by a user in the meantime is kept. Returns the updated ids
+    public List<UUID> complete(String pendingLocale, Map<UUID, String> locales) {
+        if(locales.isEmpty()) return List.of();
+
+        List<UUID> ids = new ArrayList<>(locales.keySet());
+        int[] updated = jdbcTemplate.batchUpdate(
+                "UPDATE t_document SET locale = ?, locale_claimed_until = NULL, version = version + 1 WHERE id = ? AND locale = ?",
+                ids, ids.size(), (statement, id) -> {
+                    statement.setString(1, locales.get(id));
+                    statement.setObject(2, id);
+                    statement.setString(3, pendingLocale);
+                })[0];
+
+        List<UUID> completed = new ArrayList<>(ids.size());
+        for(int i = 0; i < ids.size(); i++) {
+            if(updated[i] != 0) completed.add(ids.get(i));
+        }
+        return completed;
+    }
+
+    public record PendingDocument(UUID id, String content) {}
+}
@@ -1,11 +1,31 @@
 package com.bureau.translateit.repositories;
 
 import com.bureau.translateit.models.Translator;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-public interface TranslatorRepository extends JpaRepository<Translator, UUID> {
-    Optional<Translator> findByEmail(String email);
+public interface TranslatorRepository extends JpaRepository<Translator, UUID>, TranslatorRepositoryCustom {
+    List<Translator> findByEmailIn(Collection<String> emails);
+    @Query("select t.version from Translator t where t.id = :id")
+    Optional<Long> findVersionById(UUID id);
+    @Query(value = "select t.id from Translator t", countQuery = "select count(t) from Translator t")
+    Page<UUID> findIds(Pageable pageable);
+    @EntityGraph(attributePaths = "documents")
+    List<Translator> findWithDocumentsByIdIn(Collection<UUID> ids);
+    @EntityGraph(attributePaths = "documents")
+    Optional<Translator> findWithDocumentsByEmail(String email);
+    Slice<Translator> findSliceBy(Pageable pageable);
+    Window<Translator> findAllByOrderByCreatedAtAscIdAsc(ScrollPosition position, Limit limit);
 }
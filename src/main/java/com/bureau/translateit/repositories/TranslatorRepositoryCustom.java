@@ -0,0 +1,9 @@
+package com.bureau.translateit.repositories;
+
+import com.bureau.translateit.models.Translator;
+
+import java.util.Optional;
+
+public interface TranslatorRepositoryCustom {
+    Optional<Translator> findByEmail(String email);
+}
@@ -0,0 +1,23 @@
+package com.bureau.translateit.repositories;
+
+import com.bureau.translateit.models.Translator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public class TranslatorRepositoryCustomImpl implements TranslatorRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //Resolved through the natural id and entity cache regions, the database is only hit on a miss.
+    //Transactional so the shared EntityManager has a session to unwrap when there's no surrounding transaction
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Translator> findByEmail(String email) {
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Translator.class).loadOptional(email);
+    }
+}
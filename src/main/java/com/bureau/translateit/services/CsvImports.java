@@ -0,0 +1,42 @@
+package com.bureau.translateit.services;
+
+import com.bureau.translateit.utils.Decompression;
+import com.bureau.translateit.utils.ParallelCsvReader;
+import com.opencsv.exceptions.CsvMalformedLineException;
+import com.opencsv.exceptions.CsvValidationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+//Opens the uploaded CSV files of both services and reports the line of the row that fails
+@Component
+public class CsvImports {
+
+    @Autowired
+    private ForkJoinPool csvParsePool;
+
+    @Value("${imports.parse.chunk-chars}")
+    private int parseChunkChars;
+
+    public <T> ParallelCsvReader<T> open(InputStream input, Function<String[], T> mapper) throws IOException, CsvValidationException {
+        return new ParallelCsvReader<>(Decompression.decompress(input), ';', parseChunkChars, csvParsePool, mapper);
+    }
+
+    //A row that can't be parsed or mapped fails with its line number, invalidRow builds the format error for that line.
+    //Errors about a value, like a malformed UUID or email, keep their message
+    public <T> T next(ParallelCsvReader<T> csvReader, LongFunction<RuntimeException> invalidRow) throws IOException {
+        try {
+            return csvReader.next();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Line " + csvReader.getLineNumber() + ": " + e.getMessage(), e);
+        } catch (CsvValidationException | CsvMalformedLineException | RuntimeException e) {
+            throw invalidRow.apply(csvReader.getLineNumber());
+        }
+    }
+}
@@ -1,32 +1,49 @@
 package com.bureau.translateit.services;
 
 import com.bureau.translateit.exceptions.*;
+import com.bureau.translateit.locale.LocaleDetector;
 import com.bureau.translateit.models.Document;
+import com.bureau.translateit.models.ImportProgress;
 import com.bureau.translateit.models.Translator;
+import com.bureau.translateit.models.dtos.BulkImportResult;
+import com.bureau.translateit.models.dtos.CursorPage;
+import com.bureau.translateit.models.dtos.ImportResult;
 import com.bureau.translateit.models.dtos.DocumentDto;
-import com.bureau.translateit.openai.OpenAiApiClient;
+import com.bureau.translateit.models.dtos.DocumentSearchResult;
+import com.bureau.translateit.models.dtos.DocumentSummary;
+import com.bureau.translateit.repositories.DocumentBulkRepository;
 import com.bureau.translateit.repositories.DocumentRepository;
 import com.bureau.translateit.repositories.TranslatorRepository;
+import com.bureau.translateit.utils.CappedSet;
 import com.bureau.translateit.utils.CheckIsValidEmail;
-import com.opencsv.CSVParser;
-import com.opencsv.CSVParserBuilder;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
+import com.bureau.translateit.utils.ETags;
+import com.bureau.translateit.utils.KeysetCursor;
+import com.bureau.translateit.utils.ParallelCsvReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVWriter;
 import com.opencsv.exceptions.CsvValidationException;
-import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.UUID;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class DocumentService {
@@ -38,7 +55,36 @@ public class DocumentService {
     private TranslatorRepository translatorRepository;
 
     @Autowired
-    private OpenAiApiClient openAiApiClient;
+    private DocumentBulkRepository documentBulkRepository;
+
+    @Autowired
+    private RecordCountCache recordCountCache;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityCache<Document> documentCache;
+
+    @Autowired
+    private LocaleDetector localeDetector;
+
+    @Autowired
+    private CsvImports csvImports;
+
+    private static final int IN_CLAUSE_SIZE = 1000;
+
+    private static final int MAX_SCROLL_SIZE = 100;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${imports.chunk-size}")
+    private int chunkSize;
+
+    //Documents without a known locale are saved as pending and classified by LocaleBackfillWorker
+    @Value("${locale.detection.deferred}")
+    private boolean deferredDetection;
 
     public Document create(DocumentDto documentDto){
             Translator translator = translatorRepository.findByEmail(documentDto.getAuthor()).orElseThrow(() -> new TranslatorNotFoundException(documentDto.getAuthor()));
@@ -46,7 +92,7 @@ public class DocumentService {
             BeanUtils.copyProperties(documentDto, newDocument);
             newDocument.setTranslator(translator);
             if(documentDto.getLocale().isEmpty()){
-                String locale = openAiApiClient.getLocale(documentDto.getContent());
+                String locale = detectLocale(documentDto.getContent());
                 if(!locale.isEmpty()){
                     newDocument.setLocale(locale);
                 }
@@ -54,56 +100,109 @@ public class DocumentService {
             return documentRepository.save(newDocument);
     }
 
+    @Transactional
     public List<Document> createFromCsv(MultipartFile file) {
         List<Document> documents = new ArrayList<>();
         try {
-            CSVParser parser = new CSVParserBuilder().withSeparator(';').build();
-            CSVReader csvReader = new CSVReaderBuilder(new InputStreamReader(file.getInputStream())).withCSVParser(parser).build();
-            String[] headers = csvReader.readNext();
+            createFromCsv(file.getInputStream(), ImportProgress.NONE, documents::addAll);
+        } catch (IOException e) {
+            throw new InvalidDocumentCsvException();
+        }
+        return documents;
+    }
+
+    //Only counts the rows, nothing is kept for the response so memory stays flat whatever the size of the file
+    @Transactional
+    public ImportResult createFromCsvSummary(MultipartFile file) {
+        AtomicLong rowsPersisted = new AtomicLong();
+        try {
+            createFromCsv(file.getInputStream(), ImportProgress.NONE, chunk -> rowsPersisted.addAndGet(chunk.size()));
+        } catch (IOException e) {
+            throw new InvalidDocumentCsvException();
+        }
+        return new ImportResult(rowsPersisted.get());
+    }
+
+    //Rows are persisted in chunks and the persistence context is cleared after each one, so memory doesn't grow with the file
+    @Transactional
+    public void createFromCsv(InputStream input, ImportProgress progress, Consumer<List<Document>> persisted) {
+        ImportChunk chunk = new ImportChunk(chunkSize);
+        try (ParallelCsvReader<Document> csvReader = csvImports.open(input, this::parseRow)) {
+            String[] headers = csvReader.getHeaders();
 
             //Headers should be: subject;content;locale(optional);author
             if(headers == null || headers.length < 3) {
                 throw new InvalidDocumentCsvException();
             }
 
-            String[] row;
-            while((row = csvReader.readNext()) != null) {
-                Document document = new Document();
-
-                String subject = row[0];
-                String content = row[1];
-
-                document.setSubject(subject);
-                document.setContent(content);
-
-                final String author;
-
-                //If there's 4 headers, means that locale exists
-                if(row.length == 4){
-                    author = row[3];
-                    if(subject.isEmpty() || content.isEmpty() || author.isEmpty()){
-                        throw new InvalidDocumentCsvException();
-                    }
-                    String locale = row[2];
-                    document.setLocale(!locale.isEmpty() ? locale : openAiApiClient.getLocale(content));
-                }else{
-                    author = row[2];
-                    if(subject.isEmpty() || content.isEmpty() || author.isEmpty()){
-                        throw new InvalidDocumentCsvException();
-                    }
-                    document.setLocale(openAiApiClient.getLocale(content));
+            Document document;
+            while((document = csvImports.next(csvReader, InvalidDocumentCsvException::new)) != null) {
+                if(document.getLocale() == null) chunk.withoutLocale.add(document);
+                chunk.withNewAuthor.add(document);
+
+                chunk.documents.add(document);
+                progress.rowParsed();
+
+                if(chunk.documents.size() == chunkSize) {
+                    persistChunk(chunk, progress, persisted);
                 }
+            }
+        } catch (IOException | CsvValidationException | ArrayIndexOutOfBoundsException e) {
+            throw new InvalidDocumentCsvException();
+        }
+        persistChunk(chunk, progress, persisted);
+        chunk.throwIfReferencesMissing();
+    }
 
-                Translator translator = translatorRepository.findByEmail(author).orElseThrow(() -> new TranslatorNotFoundException(author));
-                document.setAuthor(author);
-                document.setTranslator(translator);
+    @Transactional
+    public BulkImportResult bulkCreateFromCsv(MultipartFile file) {
+        try {
+            return bulkCreateFromCsv(file.getInputStream(), ImportProgress.NONE);
+        } catch (IOException e) {
+            throw new InvalidDocumentCsvException();
+        }
+    }
+
+    //Opt-in path for very large files: rows are streamed into a COPY staging table and merged with set-based SQL
+    @Transactional
+    public BulkImportResult bulkCreateFromCsv(InputStream input, ImportProgress progress) {
+        documentBulkRepository.createStagingTable();
+        long rowsRead = 0;
+
+        try (DocumentBulkRepository.StagingCopy copy = documentBulkRepository.openStagingCopy();
+             ParallelCsvReader<Document> csvReader = csvImports.open(input, this::parseRow)) {
+            String[] headers = csvReader.getHeaders();
+
+            //Headers should be: subject;content;locale(optional);author
+            if(headers == null || headers.length < 3) {
+                throw new InvalidDocumentCsvException();
+            }
 
+            List<Document> documents = new ArrayList<>(chunkSize);
+            Document document;
+            while((document = csvImports.next(csvReader, InvalidDocumentCsvException::new)) != null) {
                 documents.add(document);
+                progress.rowParsed();
+
+                if(documents.size() == chunkSize) {
+                    rowsRead = copyChunk(copy, documents, rowsRead);
+                }
             }
+            rowsRead = copyChunk(copy, documents, rowsRead);
+            copy.finish();
         } catch (IOException | CsvValidationException | ArrayIndexOutOfBoundsException e) {
             throw new InvalidDocumentCsvException();
         }
-        return documentRepository.saveAll(documents);
+
+        List<String> missingAuthors = documentBulkRepository.findMissingAuthors(IN_CLAUSE_SIZE);
+        if(!missingAuthors.isEmpty()) {
+            long totalMissing = missingAuthors.size() < IN_CLAUSE_SIZE ? missingAuthors.size() : documentBulkRepository.countMissingAuthors();
+            throw new TranslatorNotFoundException("emails", missingAuthors, totalMissing);
+        }
+
+        int rowsInserted = documentBulkRepository.mergeStaged();
+        progress.rowsPersisted(rowsInserted);
+        return new BulkImportResult(rowsRead, rowsInserted);
     }
 
     public Page<Document> getAll(String author, String locale, Pageable pageable) {
@@ -130,109 +229,447 @@ public class DocumentService {
         return foundDocuments;
     }
 
+    public Page<DocumentSummary> getSummaries(String author, String locale, Pageable pageable) {
+        Page<DocumentSummary> foundDocuments;
+
+        if((author != null && !author.isEmpty()) && (locale != null && !locale.isEmpty())){
+            foundDocuments = documentRepository.findSummaryByAuthorAndLocale(author, locale, pageable);
+            if(foundDocuments.isEmpty()) throw new DocumentNotFoundException(author + " " + locale);
+        } else if(author != null && !author.isEmpty()) {
+            foundDocuments = documentRepository.findSummaryByAuthor(author, pageable);
+            if(foundDocuments.isEmpty()) throw new DocumentNotFoundException(author);
+        } else if(locale != null && !locale.isEmpty()){
+            foundDocuments = documentRepository.findSummaryByLocale(locale, pageable);
+            if(foundDocuments.isEmpty()) throw new DocumentNotFoundException(locale);
+        } else{
+            foundDocuments = documentRepository.findSummaryBy(pageable);
+            if(foundDocuments.isEmpty()) throw new NoRecordsFoundException("Documents");
+        }
+
+        return foundDocuments;
+    }
+
+    //Same filters as getAll, but reads one row past the page instead of running a count query
+    public Slice<Document> getSlice(String author, String locale, Pageable pageable) {
+        Slice<Document> foundDocuments;
+
+        if((author != null && !author.isEmpty()) && (locale != null && !locale.isEmpty())){
+            foundDocuments = documentRepository.findSliceByAuthorAndLocale(author, locale, pageable);
+            if(foundDocuments.isEmpty()) throw new DocumentNotFoundException(author + " " + locale);
+        } else if(author != null && !author.isEmpty()) {
+            foundDocuments = documentRepository.findSliceByAuthor(author, pageable);
+            if(foundDocuments.isEmpty()) throw new DocumentNotFoundException(author);
+        } else if(locale != null && !locale.isEmpty()){
+            foundDocuments = documentRepository.findSliceByLocale(locale, pageable);
+            if(foundDocuments.isEmpty()) throw new DocumentNotFoundException(locale);
+        } else{
+            foundDocuments = documentRepository.findSliceBy(pageable);
+            if(foundDocuments.isEmpty()) throw new NoRecordsFoundException("Documents");
+        }
+
+        return foundDocuments;
+    }
+
+    public long count(String author, String locale) {
+        boolean byAuthor = author != null && !author.isEmpty();
+        boolean byLocale = locale != null && !locale.isEmpty();
+        String key = "documents|" + (byAuthor ? author : "") + "|" + (byLocale ? locale : "");
+
+        return recordCountCache.getOrCount(key, () -> {
+            if(byAuthor && byLocale) return documentRepository.countByAuthorAndLocale(author, locale);
+            if(byAuthor) return documentRepository.countByAuthor(author);
+            if(byLocale) return documentRepository.countByLocale(locale);
+            return documentRepository.count();
+        });
+    }
+
+    //Keyset pagination over (createdAt, id), the cost of a page does not grow with its depth
+    public CursorPage<Document> scroll(String author, String locale, String cursor, int size) {
+        ScrollPosition position = KeysetCursor.decode(cursor);
+        Limit limit = Limit.of(Math.clamp(size, 1, MAX_SCROLL_SIZE));
+        Window<Document> foundDocuments;
+
+        if((author != null && !author.isEmpty()) && (locale != null && !locale.isEmpty())){
+            foundDocuments = documentRepository.findByAuthorAndLocaleOrderByCreatedAtAscIdAsc(author, locale, position, limit);
+            if(foundDocuments.isEmpty() && cursor == null) throw new DocumentNotFoundException(author + " " + locale);
+        } else if(author != null && !author.isEmpty()) {
+            foundDocuments = documentRepository.findByAuthorOrderByCreatedAtAscIdAsc(author, position, limit);
+            if(foundDocuments.isEmpty() && cursor == null) throw new DocumentNotFoundException(author);
+        } else if(locale != null && !locale.isEmpty()){
+            foundDocuments = documentRepository.findByLocaleOrderByCreatedAtAscIdAsc(locale, position, limit);
+            if(foundDocuments.isEmpty() && cursor == null) throw new DocumentNotFoundException(locale);
+        } else{
+            foundDocuments = documentRepository.findAllByOrderByCreatedAtAscIdAsc(position, limit);
+            if(foundDocuments.isEmpty() && cursor == null) throw new NoRecordsFoundException("Documents");
+        }
+
+        return new CursorPage<>(foundDocuments.getContent(), foundDocuments.size(), foundDocuments.hasNext(), KeysetCursor.next(foundDocuments));
+    }
+
+    //Documents are read by translator_id, the translator's collection is never loaded
+    public Page<Document> getByTranslator(UUID translatorId, Pageable pageable) {
+        Page<Document> foundDocuments = documentRepository.findByTranslatorId(translatorId, pageable);
+        if(foundDocuments.isEmpty() && !translatorRepository.existsById(translatorId)) throw new TranslatorNotFoundException(translatorId);
+        return foundDocuments;
+    }
+
+    public CursorPage<Document> scrollByTranslator(UUID translatorId, String cursor, int size) {
+        Window<Document> foundDocuments = documentRepository.findByTranslatorIdOrderByCreatedAtAscIdAsc(translatorId, KeysetCursor.decode(cursor), Limit.of(Math.clamp(size, 1, MAX_SCROLL_SIZE)));
+        if(foundDocuments.isEmpty() && cursor == null && !translatorRepository.existsById(translatorId)) throw new TranslatorNotFoundException(translatorId);
+        return new CursorPage<>(foundDocuments.getContent(), foundDocuments.size(), foundDocuments.hasNext(), KeysetCursor.next(foundDocuments));
+    }
+
+    //Without a locale the words are matched as written, with one they're stemmed in that locale's language
+    public Slice<DocumentSearchResult> search(String text, String locale, Pageable pageable) {
+        if(text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Search text can't be empty");
+        }
+        //Results are always ordered by rank
+        Pageable unsorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        return documentRepository.search(text, locale == null || locale.isEmpty() ? null : locale, unsorted);
+    }
+
+    //Rows are read through a server side cursor and detached once written, memory doesn't grow with the export
+    @Transactional(readOnly = true)
+    public void export(String author, String locale, ExportFormat format, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        CSVWriter csvWriter = null;
+        if(format == ExportFormat.CSV) {
+            //Backslash escaping, the same the upload parser reads back
+            csvWriter = new CSVWriter(writer, ';', CSVWriter.DEFAULT_QUOTE_CHARACTER, '\\', CSVWriter.DEFAULT_LINE_END);
+            csvWriter.writeNext(new String[]{"subject", "content", "locale", "author"});
+        }
+
+        try(Stream<Document> documents = streamDocuments(author, locale)) {
+            Iterator<Document> iterator = documents.iterator();
+            while(iterator.hasNext()) {
+                Document document = iterator.next();
+                if(csvWriter != null) {
+                    csvWriter.writeNext(new String[]{document.getSubject(), document.getContent(), document.getLocale(), document.getAuthor()});
+                } else {
+                    writer.write(objectMapper.writeValueAsString(document));
+                    writer.write('\n');
+                }
+                entityManager.detach(document);
+            }
+        }
+        writer.flush();
+    }
+
+    private Stream<Document> streamDocuments(String author, String locale) {
+        if((author != null && !author.isEmpty()) && (locale != null && !locale.isEmpty())) return documentRepository.streamByAuthorAndLocale(author, locale);
+        if(author != null && !author.isEmpty()) return documentRepository.streamByAuthor(author);
+        if(locale != null && !locale.isEmpty()) return documentRepository.streamByLocale(locale);
+        return documentRepository.streamAllBy();
+    }
+
+    public enum ExportFormat { NDJSON, CSV }
+
     public Document getById(UUID id) {
-        return documentRepository.findById(id).orElseThrow(() -> new DocumentNotFoundException(id));
+        return documentCache.getOrLoad(id, key -> documentRepository.findById(key).orElseThrow(() -> new DocumentNotFoundException(key)));
+    }
+
+    //Only reads the version column, enough to answer conditional requests
+    public Long getVersion(UUID id) {
+        return documentRepository.findVersionById(id).orElse(null);
     }
 
+    @Transactional
     public Document update(UUID id, DocumentDto documentDto) {
-        try {
-            Document foundDocument = documentRepository.getReferenceById(id);
+        return update(id, documentDto, null);
+    }
 
-            BeanUtils.copyProperties(documentDto, foundDocument);
+    //When expectedVersion is set, the update only happens if nobody changed the document since that version.
+    //The check and the write share one transaction, open-in-view is off
+    @Transactional
+    public Document update(UUID id, DocumentDto documentDto, Long expectedVersion) {
+        Document foundDocument = documentRepository.findById(id).orElseThrow(() -> new DocumentNotFoundException(id));
 
-            Translator translator = translatorRepository.findByEmail(documentDto.getAuthor()).orElseThrow(() -> new TranslatorNotFoundException(documentDto.getAuthor()));
-            foundDocument.setAuthor(documentDto.getAuthor());
-            foundDocument.setTranslator(translator);
+        if(expectedVersion != null && foundDocument.getVersion() != expectedVersion) {
+            throw new PreconditionFailedException(ETags.of(expectedVersion));
+        }
 
-            if(foundDocument.getLocale().isEmpty() || documentDto.getLocale().isEmpty()) foundDocument.setLocale(openAiApiClient.getLocale(documentDto.getContent()));
+        BeanUtils.copyProperties(documentDto, foundDocument);
 
-            return documentRepository.save(foundDocument);
-        } catch (EntityNotFoundException e){
-            throw new DocumentNotFoundException(id);
-        }
+        Translator translator = translatorRepository.findByEmail(documentDto.getAuthor()).orElseThrow(() -> new TranslatorNotFoundException(documentDto.getAuthor()));
+        foundDocument.setAuthor(documentDto.getAuthor());
+        foundDocument.setTranslator(translator);
+
+        if(foundDocument.getLocale().isEmpty() || documentDto.getLocale().isEmpty()) foundDocument.setLocale(detectLocale(documentDto.getContent()));
+
+        Document savedDocument = documentRepository.save(foundDocument);
+        documentCache.invalidate(id);
+        return savedDocument;
     }
 
+    @Transactional
     public List<Document> updateFromCsv(MultipartFile file) {
         List<Document> updatedDocuments = new ArrayList<>();
         try {
-            CSVParser parser = new CSVParserBuilder().withSeparator(';').build();
-            CSVReader csvReader = new CSVReaderBuilder(new InputStreamReader(file.getInputStream())).withCSVParser(parser).build();
-            String[] headers = csvReader.readNext();
+            updateFromCsv(file.getInputStream(), ImportProgress.NONE, updatedDocuments::addAll);
+        } catch (IOException e) {
+            throw new InvalidDocumentCsvException();
+        }
+        return updatedDocuments;
+    }
+
+    //Only counts the rows, nothing is kept for the response so memory stays flat whatever the size of the file
+    @Transactional
+    public ImportResult updateFromCsvSummary(MultipartFile file) {
+        AtomicLong rowsPersisted = new AtomicLong();
+        try {
+            updateFromCsv(file.getInputStream(), ImportProgress.NONE, chunk -> rowsPersisted.addAndGet(chunk.size()));
+        } catch (IOException e) {
+            throw new InvalidDocumentCsvException();
+        }
+        return new ImportResult(rowsPersisted.get());
+    }
+
+    @Transactional
+    public void updateFromCsv(InputStream input, ImportProgress progress, Consumer<List<Document>> persisted) {
+        ImportChunk chunk = new ImportChunk(chunkSize);
+        try (ParallelCsvReader<DocumentUpdate> csvReader = csvImports.open(input, this::parseUpdateRow)) {
+            String[] headers = csvReader.getHeaders();
 
             //Headers should be: id;subject;content;locale(optional);author
             if (headers == null || headers.length < 4) {
                 throw new InvalidDocumentCsvException();
             }
 
-            String[] row;
-            while((row = csvReader.readNext()) != null) {
-                UUID id;
-                try {
-                    id = UUID.fromString(row[0]);
-                } catch (IllegalArgumentException e) {
-                    throw new IllegalArgumentException("Invalid UUID: " + row[0]);
+            DocumentUpdate update;
+            while((update = csvImports.next(csvReader, InvalidDocumentCsvException::new)) != null) {
+                chunk.updates.add(update);
+                progress.rowParsed();
+
+                if(chunk.updates.size() == chunkSize) {
+                    persistChunk(chunk, progress, persisted);
                 }
+            }
+        } catch (IOException | CsvValidationException | ArrayIndexOutOfBoundsException e) {
+            throw new InvalidDocumentCsvException();
+        }
+
+        persistChunk(chunk, progress, persisted);
+        chunk.throwIfReferencesMissing();
+    }
 
-                Document foundDocument = documentRepository.findById(id).orElseThrow(() -> new DocumentNotFoundException(id));
+    public void delete(UUID id) {
+        if(!documentRepository.existsById(id)) {
+            throw new DocumentNotFoundException(id);
+        }
+        documentRepository.deleteById(id);
+        documentCache.invalidate(id);
+    }
 
-                String subject = row[1];
+    //Validates an id;subject;content;locale(optional);author row
+    private DocumentUpdate parseUpdateRow(String[] row) {
+        UUID id;
+        try {
+            id = UUID.fromString(row[0]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid UUID: " + row[0]);
+        }
 
-                if(subject != null && !subject.isEmpty()) {
-                    foundDocument.setSubject(subject);
-                }
+        String subject = row[1];
+        String content = row[2];
+        String locale = null;
+        String author;
+
+        //Verifying if the row has 5 values (locale might be empty, but has been passed)
+        if(row.length == 5){
+            locale = row[3];
+            author = row[4];
+        }else{
+            author = row[3];
+        }
 
-                String content = row[2];
+        if(author != null && !author.isEmpty() && !CheckIsValidEmail.isValid(author)){
+            throw new IllegalArgumentException("Email: " + author + " is not valid.");
+        }
 
-                if(content != null && !content.isEmpty()) {
-                    foundDocument.setContent(content);
-                }
+        return new DocumentUpdate(id, subject, content, locale, author);
+    }
 
-                String author;
-
-                //Verifying if the row has 5 values (locale might be empty, but has been passed)
-                if(row.length == 5){
-                    String locale = row[3];
-                    foundDocument.setLocale(!locale.isEmpty() ? locale : openAiApiClient.getLocale(content));
-                    author = row[4];
-                    if(author != null && !author.isEmpty()) {
-                        if(!CheckIsValidEmail.isValid(author)){
-                            throw new IllegalArgumentException("Email: " + author + " is not valid.");
-                        }
-                    }else{
-                        author = "";
-                    }
-                }else{
-                    author = row[3];
-                    if(author != null && !author.isEmpty()) {
-                        if(!CheckIsValidEmail.isValid(author)){
-                            throw new IllegalArgumentException("Email: " + author + " is not valid.");
-                        }
-                    }else{
-                        author = "";
-                    }
-                }
+    //Validates a subject;content;locale(optional);author row. The locale is left null when it has to be detected
+    private Document parseRow(String[] row) {
+        Document document = new Document();
+
+        String subject = row[0];
+        String content = row[1];
+
+        document.setSubject(subject);
+        document.setContent(content);
 
-                if(!author.isEmpty()){
-                    foundDocument.setAuthor(author);
-                    String finalAuthor = author;
-                    Translator translator = translatorRepository.findByEmail(author).orElseThrow(() -> new TranslatorNotFoundException(finalAuthor));
-                    foundDocument.setTranslator(translator);
+        final String author;
+
+        //If there's 4 headers, means that locale exists
+        if(row.length == 4){
+            author = row[3];
+            if(subject.isEmpty() || content.isEmpty() || author.isEmpty()){
+                throw new InvalidDocumentCsvException();
+            }
+            String locale = row[2];
+            if(!locale.isEmpty()){
+                document.setLocale(locale);
+            }
+        }else{
+            author = row[2];
+            if(subject.isEmpty() || content.isEmpty() || author.isEmpty()){
+                throw new InvalidDocumentCsvException();
+            }
+        }
+
+        document.setAuthor(author);
+        return document;
+    }
+
+    private long copyChunk(DocumentBulkRepository.StagingCopy copy, List<Document> documents, long rowsRead) {
+        detectLocales(documents.stream().filter(document -> document.getLocale() == null).toList());
+        for(Document document : documents) {
+            copy.write(++rowsRead, document.getSubject(), document.getContent(), document.getLocale(), document.getAuthor());
+        }
+        documents.clear();
+        return rowsRead;
+    }
+
+    private void persistChunk(ImportChunk chunk, ImportProgress progress, Consumer<List<Document>> persisted) {
+        if(chunk.documents.isEmpty() && chunk.updates.isEmpty()) return;
+
+        applyUpdates(chunk);
+        resolveTranslators(chunk);
+
+        //Once a document or an author is missing nothing else is written, the rest of the file is only read to report all of them
+        if(!chunk.hasMissingReferences()) {
+            detectLocales(chunk.withoutLocale);
+            List<Document> saved = documentRepository.saveAll(chunk.documents);
+
+            //Sends the chunk as JDBC batches and detaches it
+            entityManager.flush();
+            entityManager.clear();
+
+            progress.rowsPersisted(saved.size());
+            persisted.accept(saved);
+        } else {
+            entityManager.clear();
+        }
+        chunk.clear();
+    }
+
+    //Loads the documents of the whole chunk with one query and applies the rows in file order
+    private void applyUpdates(ImportChunk chunk) {
+        if(chunk.updates.isEmpty()) return;
+
+        Set<UUID> ids = new LinkedHashSet<>();
+        chunk.updates.forEach(update -> ids.add(update.id()));
+        Map<UUID, Document> foundDocuments = new HashMap<>();
+        documentRepository.findAllById(ids).forEach(document -> foundDocuments.put(document.getId(), document));
+
+        for(DocumentUpdate update : chunk.updates) {
+            Document foundDocument = foundDocuments.get(update.id());
+            if(foundDocument == null) {
+                chunk.missingIds.add(update.id());
+                continue;
+            }
+            documentCache.invalidate(update.id());
+
+            if(update.subject() != null && !update.subject().isEmpty()) {
+                foundDocument.setSubject(update.subject());
+            }
+
+            if(update.content() != null && !update.content().isEmpty()) {
+                foundDocument.setContent(update.content());
+            }
+
+            if(update.locale() != null) {
+                if(!update.locale().isEmpty()) {
+                    foundDocument.setLocale(update.locale());
+                } else {
+                    chunk.withoutLocale.add(foundDocument);
                 }
+            }
 
-                updatedDocuments.add(foundDocument);
+            if(update.author() != null && !update.author().isEmpty()) {
+                foundDocument.setAuthor(update.author());
+                chunk.withNewAuthor.add(foundDocument);
             }
-        } catch (IOException | CsvValidationException | ArrayIndexOutOfBoundsException e) {
-            throw new InvalidDocumentCsvException();
+
+            chunk.documents.add(foundDocument);
         }
-        
-        return documentRepository.saveAll(updatedDocuments);
     }
 
-    public void delete(UUID id) {
-        if(!documentRepository.existsById(id)) {
-            throw new DocumentNotFoundException(id);
+    //One IN query per new set of authors instead of one lookup per row
+    private void resolveTranslators(ImportChunk chunk) {
+        Set<String> unknownEmails = new HashSet<>();
+        for(Document document : chunk.withNewAuthor) {
+            if(!chunk.translatorIds.containsKey(document.getAuthor())) unknownEmails.add(document.getAuthor());
+        }
+
+        List<String> emails = new ArrayList<>(unknownEmails);
+        for(int i = 0; i < emails.size(); i += IN_CLAUSE_SIZE) {
+            translatorRepository.findByEmailIn(emails.subList(i, Math.min(emails.size(), i + IN_CLAUSE_SIZE)))
+                    .forEach(translator -> chunk.translatorIds.put(translator.getEmail(), translator.getId()));
+        }
+        //Once per email, not per row
+        for(String email : emails) {
+            if(!chunk.translatorIds.containsKey(email)) chunk.missingAuthors.add(email);
+        }
+
+        for(Document document : chunk.withNewAuthor) {
+            UUID translatorId = chunk.translatorIds.get(document.getAuthor());
+            if(translatorId != null) {
+                //A reference of the current persistence context, the translators loaded by earlier chunks were detached by clear()
+                document.setTranslator(entityManager.getReference(Translator.class, translatorId));
+            }
+        }
+    }
+
+    //With deferred detection a single document never waits on OpenAI, it is saved as pending for LocaleBackfillWorker
+    private String detectLocale(String content) {
+        return deferredDetection ? localeDetector.detectOrDefer(content) : localeDetector.detect(content);
+    }
+
+    //Resolves all the missing locales of a chunk at once, so they can be batched
+    private void detectLocales(List<Document> documents) {
+        if(documents.isEmpty()) return;
+
+        List<String> locales = localeDetector.detectAll(documents.stream().map(Document::getContent).toList());
+        for(int i = 0; i < documents.size(); i++) {
+            documents.get(i).setLocale(locales.get(i));
+        }
+    }
+
+    private record DocumentUpdate(UUID id, String subject, String content, String locale, String author) {}
+
+    private static class ImportChunk {
+        private final List<Document> documents;
+        private final List<DocumentUpdate> updates = new ArrayList<>();
+        private final List<Document> withoutLocale = new ArrayList<>();
+        private final List<Document> withNewAuthor = new ArrayList<>();
+
+        //Kept for the whole import, only ids so nothing outlives the persistence context it was loaded in
+        private final Map<String, UUID> translatorIds = new HashMap<>();
+        private final CappedSet<String> missingAuthors = new CappedSet<>(IN_CLAUSE_SIZE);
+        private final CappedSet<UUID> missingIds = new CappedSet<>(IN_CLAUSE_SIZE);
+
+        ImportChunk(int size) {
+            this.documents = new ArrayList<>(size);
+        }
+
+        void clear() {
+            documents.clear();
+            updates.clear();
+            withoutLocale.clear();
+            withNewAuthor.clear();
+        }
+
+        boolean hasMissingReferences() {
+            return !missingIds.isEmpty() || !missingAuthors.isEmpty();
+        }
+
+        void throwIfReferencesMissing() {
+            if(!missingIds.isEmpty()) throw new DocumentNotFoundException(missingIds.values(), missingIds.total());
+            if(!missingAuthors.isEmpty()) throw new TranslatorNotFoundException("emails", missingAuthors.values(), missingAuthors.total());
         }
-        documentRepository.deleteById(id);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.bureau.translateit.services;
+
+import com.bureau.translateit.utils.BoundedTtlCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+//Read-through cache for single entity reads by id. Callers always get their own copy, never the cached instance
+public class EntityCache<T> implements MeterBinder {
+
+    private final String name;
+    private final BoundedTtlCache<UUID, T> cache;
+    private final UnaryOperator<T> copier;
+
+    //Bumped on every invalidation, a load that overlaps one isn't cached since it may have read the old row
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public EntityCache(String name, int maxSize, long ttlSeconds, UnaryOperator<T> copier) {
+        this.name = name;
+        this.cache = new BoundedTtlCache<>(maxSize, ttlSeconds * 1000L);
+        this.copier = copier;
+    }
+
+    public T getOrLoad(UUID id, Function<UUID, T> loader) {
+        T cached = cache.get(id);
+        if(cached != null) return copier.apply(cached);
+
+        long invalidationsBefore = invalidations.get();
+        T loaded = loader.apply(id);
+        if(loaded != null && invalidations.get() == invalidationsBefore) {
+            cache.put(id, copier.apply(loaded));
+        }
+        return loaded;
+    }
+
+    //Evicted once the surrounding transaction commits, before that other readers still see the old row in the database
+    public void invalidate(UUID id) {
+        afterCommit(() -> {
+            invalidations.incrementAndGet();
+            cache.invalidate(id);
+        });
+    }
+
+    public void invalidateAll() {
+        afterCommit(() -> {
+            invalidations.incrementAndGet();
+            cache.invalidateAll();
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Tags tags = Tags.of("cache", name);
+        FunctionCounter.builder("entity.cache.hits", cache, BoundedTtlCache::getHits).tags(tags).register(registry);
+        FunctionCounter.builder("entity.cache.misses", cache, BoundedTtlCache::getMisses).tags(tags).register(registry);
+        FunctionCounter.builder("entity.cache.evictions", cache, BoundedTtlCache::getEvictions).tags(tags).register(registry);
+        Gauge.builder("entity.cache.size", cache, BoundedTtlCache::size).tags(tags).register(registry);
+    }
+}
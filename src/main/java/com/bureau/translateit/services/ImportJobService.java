@@ -0,0 +1,108 @@
+package com.bureau.translateit.services;
+
+import com.bureau.translateit.exceptions.ImportJobNotFoundException;
+import com.bureau.translateit.exceptions.ImportQueueFullException;
+import com.bureau.translateit.models.ImportJob;
+import com.bureau.translateit.models.ImportProgress;
+import com.bureau.translateit.utils.CountingInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Jobs live in this instance's memory only: they aren't visible to other replicas and are lost on restart
+@Service
+public class ImportJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportJobService.class);
+
+    @FunctionalInterface
+    public interface Importer {
+        void run(InputStream input, ImportProgress progress);
+    }
+
+    @Autowired
+    @Qualifier("importExecutor")
+    private ThreadPoolTaskExecutor importExecutor;
+
+    @Value("${imports.jobs.retention-minutes}")
+    private long retentionMinutes;
+
+    private final Map<UUID, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public ImportJob submit(String type, MultipartFile file, Importer importer) {
+        removeExpiredJobs();
+
+        //The upload is only guaranteed to exist during the request, so it's copied before the request returns
+        Path upload = copyUpload(file);
+        ImportJob job = new ImportJob(type, file.getSize());
+        jobs.put(job.getId(), job);
+
+        try {
+            importExecutor.execute(() -> run(job, upload, importer));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.getId());
+            deleteUpload(upload);
+            throw new ImportQueueFullException();
+        }
+        return job;
+    }
+
+    public ImportJob getById(UUID id) {
+        ImportJob job = jobs.get(id);
+        if(job == null) throw new ImportJobNotFoundException(id);
+        return job;
+    }
+
+    private void run(ImportJob job, Path upload, Importer importer) {
+        job.start();
+        try (InputStream input = new CountingInputStream(Files.newInputStream(upload), job::bytesRead)) {
+            importer.run(input, job);
+            job.complete();
+        } catch (Exception e) {
+            log.warn("Import job {} failed: {}", job.getId(), e.getMessage());
+            job.fail(e.getMessage());
+        } finally {
+            deleteUpload(upload);
+        }
+    }
+
+    private Path copyUpload(MultipartFile file) {
+        try {
+            Path upload = Files.createTempFile("translateit-import-", ".csv");
+            file.transferTo(upload);
+            return upload;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read the uploaded file.");
+        }
+    }
+
+    private void deleteUpload(Path upload) {
+        try {
+            Files.deleteIfExists(upload);
+        } catch (IOException e) {
+            log.warn("Could not delete import file {}", upload, new UncheckedIOException(e));
+        }
+    }
+
+    private void removeExpiredJobs() {
+        Instant limit = Instant.now().minus(Duration.ofMinutes(retentionMinutes));
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(limit));
+    }
+}
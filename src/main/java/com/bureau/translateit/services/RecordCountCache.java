@@ -0,0 +1,26 @@
+package com.bureau.translateit.services;
+
+import com.bureau.translateit.utils.BoundedTtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+//Totals for the listing filters, kept for a short time so the count query doesn't run on every page
+@Component
+public class RecordCountCache {
+
+    private final BoundedTtlCache<String, Long> cache;
+
+    public RecordCountCache(
+            @Value("${listing.count-cache.max-size}") int maxSize,
+            @Value("${listing.count-cache.ttl-seconds}") long ttlSeconds
+    ) {
+        this.cache = new BoundedTtlCache<>(maxSize, ttlSeconds * 1000L);
+    }
+
+    public long getOrCount(String key, Supplier<Long> counter) {
+        return cache.getOrLoad(key, k -> counter.get());
+    }
+
+}
@@ -3,33 +3,44 @@ package com.bureau.translateit.services;
 import com.bureau.translateit.exceptions.EmailAlreadyUsedException;
 import com.bureau.translateit.exceptions.InvalidTranslatorCsvException;
 import com.bureau.translateit.exceptions.NoRecordsFoundException;
+import com.bureau.translateit.exceptions.PreconditionFailedException;
 import com.bureau.translateit.exceptions.TranslatorNotFoundException;
 import com.bureau.translateit.models.Document;
+import com.bureau.translateit.models.ImportProgress;
 import com.bureau.translateit.models.Translator;
+import com.bureau.translateit.models.dtos.CursorPage;
+import com.bureau.translateit.models.dtos.ImportResult;
 import com.bureau.translateit.models.dtos.TranslatorDto;
 import com.bureau.translateit.repositories.DocumentRepository;
 import com.bureau.translateit.repositories.TranslatorRepository;
+import com.bureau.translateit.utils.CappedSet;
 import com.bureau.translateit.utils.CheckIsValidEmail;
-import com.opencsv.CSVParser;
-import com.opencsv.CSVParserBuilder;
-import com.opencsv.CSVReader;
-import com.opencsv.CSVReaderBuilder;
+import com.bureau.translateit.utils.ETags;
+import com.bureau.translateit.utils.KeysetCursor;
+import com.bureau.translateit.utils.ParallelCsvReader;
 import com.opencsv.exceptions.CsvValidationException;
-import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Service
 public class TranslatorService {
@@ -40,6 +51,31 @@ public class TranslatorService {
     @Autowired
     private DocumentRepository documentRepository;
 
+    @Autowired
+    private RecordCountCache recordCountCache;
+
+    @Autowired
+    private EntityCache<Translator> translatorCache;
+
+    @Autowired
+    private EntityCache<Document> documentCache;
+
+    @Autowired
+    private CsvImports csvImports;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${imports.chunk-size}")
+    private int chunkSize;
+
+    private static final int MAX_SCROLL_SIZE = 100;
+
+    private static final int MAX_PAGE_SIZE_WITH_DOCUMENTS = 20;
+
+    //The error of an import with bad ids lists at most this many of them
+    private static final int MAX_REPORTED_IDS = 1000;
+
     public Translator create(TranslatorDto translatorDto) {
         if (translatorRepository.findByEmail(translatorDto.getEmail()).isPresent()) {
             throw new EmailAlreadyUsedException(translatorDto.getEmail());
@@ -55,169 +91,407 @@ public class TranslatorService {
         translator.setSourceLanguage(translatorDto.getSourceLanguage());
         translator.setTargetLanguage(translatorDto.getTargetLanguage());
 
-        return translatorRepository.save(translator);
+        Translator savedTranslator = translatorRepository.save(translator);
+        savedTranslator.setDocumentCount(0L);
+        return savedTranslator;
     }
 
+    @Transactional
     public List<Translator> createFromCsv(MultipartFile file) {
         List<Translator> translators = new ArrayList<>();
         try {
-            CSVParser parser = new CSVParserBuilder().withSeparator(';').build();
-            CSVReader csvReader = new CSVReaderBuilder(new InputStreamReader(file.getInputStream())).withCSVParser(parser).build();
-            String[] headers = csvReader.readNext();
+            createFromCsv(file.getInputStream(), ImportProgress.NONE, translators::addAll);
+        } catch (IOException e) {
+            throw new InvalidTranslatorCsvException();
+        }
+        //New translators have no documents yet
+        translators.forEach(translator -> translator.setDocumentCount(0L));
+        return translators;
+    }
+
+    //Only counts the rows, nothing is kept for the response so memory stays flat whatever the size of the file
+    @Transactional
+    public ImportResult createFromCsvSummary(MultipartFile file) {
+        AtomicLong rowsPersisted = new AtomicLong();
+        try {
+            createFromCsv(file.getInputStream(), ImportProgress.NONE, chunk -> rowsPersisted.addAndGet(chunk.size()));
+        } catch (IOException e) {
+            throw new InvalidTranslatorCsvException();
+        }
+        return new ImportResult(rowsPersisted.get());
+    }
+
+    @Transactional
+    public void createFromCsv(InputStream input, ImportProgress progress, Consumer<List<Translator>> persisted) {
+        List<Translator> translators = new ArrayList<>(chunkSize);
+        //Emails of the file so far, a repeated one fails on its line instead of at the unique constraint when flushed
+        Set<String> emailsInFile = new HashSet<>();
+        try (ParallelCsvReader<Translator> csvReader = csvImports.open(input, this::parseRow)) {
+            String[] headers = csvReader.getHeaders();
 
             //Headers should be: name;email;source_language;target_language
             if(headers == null || headers.length < 4) {
                 throw new InvalidTranslatorCsvException();
             }
 
-            String[] row;
-            while((row = csvReader.readNext()) != null) {
-                String name = row[0];
-                String email = row[1];
-                String sourceLanguage = row[2];
-                String targetLanguage = row[3];
-
-                //Verifying is there's an empty value
-                if(name.isEmpty() || email.isEmpty() || sourceLanguage.isEmpty() || targetLanguage.isEmpty()){
-                    throw new InvalidTranslatorCsvException();
+            Translator translator;
+            while((translator = csvImports.next(csvReader, InvalidTranslatorCsvException::new)) != null) {
+                if(!emailsInFile.add(translator.getEmail())) {
+                    throw new IllegalArgumentException("Line " + csvReader.getLineNumber() + ": email " + translator.getEmail() + " is used more than once in the file.");
                 }
 
-                if (translatorRepository.findByEmail(email).isPresent()) {
-                    throw new EmailAlreadyUsedException(email);
-                }
+                translators.add(translator);
+                progress.rowParsed();
 
-                //Verifying if the email is valid
-                if(!CheckIsValidEmail.isValid(email)){
-                    throw new IllegalArgumentException("Email: " + email + " is not valid");
+                if(translators.size() == chunkSize) {
+                    persistNewChunk(translators, progress, persisted);
                 }
-
-                Translator translator = new Translator();
-                translator.setName(name);
-                translator.setEmail(email);
-                translator.setSourceLanguage(sourceLanguage);
-                translator.setTargetLanguage(targetLanguage);
-
-                translators.add(translator);
             }
         } catch (IOException | CsvValidationException | ArrayIndexOutOfBoundsException e) {
             throw new InvalidTranslatorCsvException();
         }
-        return translatorRepository.saveAll(translators);
+        persistNewChunk(translators, progress, persisted);
+    }
+
+    //One IN query per chunk for the emails already in use instead of one lookup per row
+    private void persistNewChunk(List<Translator> translators, ImportProgress progress, Consumer<List<Translator>> persisted) {
+        if(translators.isEmpty()) return;
+
+        Map<String, Translator> translatorsByEmail = new HashMap<>();
+        translatorRepository.findByEmailIn(translators.stream().map(Translator::getEmail).toList())
+                .forEach(translator -> translatorsByEmail.put(translator.getEmail(), translator));
+        //Reported in file order
+        for(Translator translator : translators) {
+            Translator translatorByEmail = translatorsByEmail.get(translator.getEmail());
+            if(translatorByEmail != null) {
+                throw new EmailAlreadyUsedException(translator.getEmail(), translatorByEmail.getName());
+            }
+        }
+
+        persistChunk(translators, progress, persisted);
     }
 
     public Page<Translator> getAll(String email, Pageable pageable) {
         //If this is a search by email
         if(email != null && !email.isEmpty()){
             Translator foundTranslator = translatorRepository.findByEmail(email).orElseThrow(() -> new TranslatorNotFoundException(email));
+            withDocumentCounts(List.of(foundTranslator));
             return new PageImpl<>(List.of(foundTranslator));
         }
         Page<Translator> foundTranslators = translatorRepository.findAll(pageable);
         if(foundTranslators.isEmpty()) throw new NoRecordsFoundException("Translators");
+        withDocumentCounts(foundTranslators.getContent());
         return foundTranslators;
     }
 
+    //Embeds the documents of each translator, so the page size is bounded to keep the response small
+    public Page<Translator> getAllWithDocuments(String email, Pageable pageable) {
+        if(email != null && !email.isEmpty()){
+            Translator foundTranslator = translatorRepository.findWithDocumentsByEmail(email).orElseThrow(() -> new TranslatorNotFoundException(email));
+            foundTranslator.setDocumentCount((long) foundTranslator.getDocuments().size());
+            foundTranslator.setDocumentsFetched(true);
+            return new PageImpl<>(List.of(foundTranslator));
+        }
+
+        if(pageable.getPageSize() > MAX_PAGE_SIZE_WITH_DOCUMENTS) {
+            pageable = PageRequest.of(pageable.getPageNumber(), MAX_PAGE_SIZE_WITH_DOCUMENTS, pageable.getSort());
+        }
+
+        //Paging happens on the ids, fetching the collection in the same query would page in memory
+        Page<UUID> ids = translatorRepository.findIds(pageable);
+        if(ids.isEmpty()) throw new NoRecordsFoundException("Translators");
+
+        Map<UUID, Translator> foundTranslators = new HashMap<>();
+        translatorRepository.findWithDocumentsByIdIn(ids.getContent()).forEach(translator -> foundTranslators.put(translator.getId(), translator));
+
+        List<Translator> translators = new ArrayList<>(ids.getNumberOfElements());
+        for(UUID id : ids) {
+            Translator translator = foundTranslators.get(id);
+            translator.setDocumentCount((long) translator.getDocuments().size());
+            translator.setDocumentsFetched(true);
+            translators.add(translator);
+        }
+        return new PageImpl<>(translators, pageable, ids.getTotalElements());
+    }
+
+    public Slice<Translator> getSlice(String email, Pageable pageable) {
+        if(email != null && !email.isEmpty()){
+            Translator foundTranslator = translatorRepository.findByEmail(email).orElseThrow(() -> new TranslatorNotFoundException(email));
+            withDocumentCounts(List.of(foundTranslator));
+            return new SliceImpl<>(List.of(foundTranslator));
+        }
+        Slice<Translator> foundTranslators = translatorRepository.findSliceBy(pageable);
+        if(foundTranslators.isEmpty()) throw new NoRecordsFoundException("Translators");
+        withDocumentCounts(foundTranslators.getContent());
+        return foundTranslators;
+    }
+
+    public long count() {
+        return recordCountCache.getOrCount("translators", translatorRepository::count);
+    }
+
+    public CursorPage<Translator> scroll(String cursor, int size) {
+        Window<Translator> foundTranslators = translatorRepository.findAllByOrderByCreatedAtAscIdAsc(KeysetCursor.decode(cursor), Limit.of(Math.clamp(size, 1, MAX_SCROLL_SIZE)));
+        if(foundTranslators.isEmpty() && cursor == null) throw new NoRecordsFoundException("Translators");
+        withDocumentCounts(foundTranslators.getContent());
+        return new CursorPage<>(foundTranslators.getContent(), foundTranslators.size(), foundTranslators.hasNext(), KeysetCursor.next(foundTranslators));
+    }
+
     public Translator getById(UUID id) {
-        return translatorRepository.findById(id).orElseThrow(() -> new TranslatorNotFoundException(id));
+        //The cached document count can lag behind new documents by up to the cache TTL
+        return translatorCache.getOrLoad(id, key -> {
+            Translator foundTranslator = translatorRepository.findById(key).orElseThrow(() -> new TranslatorNotFoundException(key));
+            withDocumentCounts(List.of(foundTranslator));
+            return foundTranslator;
+        });
     }
 
-    public Translator update(UUID id, TranslatorDto translatorDTO) {
+    //One grouped query for the whole page instead of loading each translator's documents
+    private void withDocumentCounts(List<Translator> translators) {
+        if(translators.isEmpty()) return;
 
-        try {
-            Translator foundTranslator = translatorRepository.getReferenceById(id);
+        Map<UUID, Long> counts = new HashMap<>();
+        List<UUID> ids = translators.stream().map(Translator::getId).toList();
+        documentRepository.countByTranslatorIds(ids).forEach(count -> counts.put(count.translatorId(), count.documents()));
 
-            // If a new email has been passed, we need to check if it's not already in use
-            if (translatorDTO.getEmail() != null && !translatorDTO.getEmail().equals(foundTranslator.getEmail())) {
-                Optional<Translator> translatorByEmail = translatorRepository.findByEmail(translatorDTO.getEmail());
-                if (translatorByEmail.isPresent()) {
-                    throw new EmailAlreadyUsedException(translatorDTO.getEmail(), translatorByEmail.get().getName());
-                }else{
-                    //Updating documents author
-                    documentRepository.updateAuthor(foundTranslator.getEmail(), translatorDTO.getEmail());
-                    foundTranslator.setEmail(translatorDTO.getEmail());
-                }
-            }
+        translators.forEach(translator -> translator.setDocumentCount(counts.getOrDefault(translator.getId(), 0L)));
+    }
 
-            BeanUtils.copyProperties(translatorDTO, foundTranslator);
+    //Only reads the version column, enough to answer conditional requests
+    public Long getVersion(UUID id) {
+        return translatorRepository.findVersionById(id).orElse(null);
+    }
 
-            return translatorRepository.save(foundTranslator);
+    @Transactional
+    public Translator update(UUID id, TranslatorDto translatorDTO) {
+        return update(id, translatorDTO, null);
+    }
 
-        } catch (EntityNotFoundException e) {
-            throw new TranslatorNotFoundException(id);
+    //When expectedVersion is set, the update only happens if nobody changed the translator since that version.
+    //The check and the write share one transaction, open-in-view is off
+    @Transactional
+    public Translator update(UUID id, TranslatorDto translatorDTO, Long expectedVersion) {
+        Translator foundTranslator = translatorRepository.findById(id).orElseThrow(() -> new TranslatorNotFoundException(id));
+
+        if(expectedVersion != null && foundTranslator.getVersion() != expectedVersion) {
+            throw new PreconditionFailedException(ETags.of(expectedVersion));
+        }
+
+        // If a new email has been passed, we need to check if it's not already in use
+        if (translatorDTO.getEmail() != null && !translatorDTO.getEmail().equals(foundTranslator.getEmail())) {
+            Optional<Translator> translatorByEmail = translatorRepository.findByEmail(translatorDTO.getEmail());
+            if (translatorByEmail.isPresent()) {
+                throw new EmailAlreadyUsedException(translatorDTO.getEmail(), translatorByEmail.get().getName());
+            }else{
+                //Updating documents author
+                documentRepository.updateAuthor(foundTranslator.getEmail(), translatorDTO.getEmail());
+                documentCache.invalidateAll();
+                foundTranslator.setEmail(translatorDTO.getEmail());
+            }
         }
 
+        BeanUtils.copyProperties(translatorDTO, foundTranslator);
+
+        Translator savedTranslator = translatorRepository.save(foundTranslator);
+        translatorCache.invalidate(id);
+        withDocumentCounts(List.of(savedTranslator));
+        return savedTranslator;
     }
 
+    @Transactional
     public List<Translator> updateFromCsv(MultipartFile file) {
         List<Translator> updatedTranslators = new ArrayList<>();
         try {
-            CSVParser parser = new CSVParserBuilder().withSeparator(';').build();
-            CSVReader csvReader = new CSVReaderBuilder(new InputStreamReader(file.getInputStream())).withCSVParser(parser).build();
-            String[] headers = csvReader.readNext();
+            updateFromCsv(file.getInputStream(), ImportProgress.NONE, chunk -> {
+                withDocumentCounts(chunk);
+                updatedTranslators.addAll(chunk);
+            });
+        } catch (IOException e) {
+            throw new InvalidTranslatorCsvException();
+        }
+        return updatedTranslators;
+    }
+
+    //Only counts the rows, nothing is kept for the response so memory stays flat whatever the size of the file
+    @Transactional
+    public ImportResult updateFromCsvSummary(MultipartFile file) {
+        AtomicLong rowsPersisted = new AtomicLong();
+        try {
+            updateFromCsv(file.getInputStream(), ImportProgress.NONE, chunk -> rowsPersisted.addAndGet(chunk.size()));
+        } catch (IOException e) {
+            throw new InvalidTranslatorCsvException();
+        }
+        return new ImportResult(rowsPersisted.get());
+    }
+
+    @Transactional
+    public void updateFromCsv(InputStream input, ImportProgress progress, Consumer<List<Translator>> persisted) {
+        List<TranslatorUpdate> updates = new ArrayList<>(chunkSize);
+        CappedSet<UUID> missingIds = new CappedSet<>(MAX_REPORTED_IDS);
+        try (ParallelCsvReader<TranslatorUpdate> csvReader = csvImports.open(input, this::parseUpdateRow)) {
+            String[] headers = csvReader.getHeaders();
 
             //Headers should be: id,name,email,source_language,target_language
             if(!headers[0].equals("id")) {
                 throw new InvalidTranslatorCsvException();
             }
 
-            String[] row;
-            while((row = csvReader.readNext()) != null) {
-                UUID id;
-                try {
-                    id = UUID.fromString(row[0]);
-                } catch (IllegalArgumentException e) {
-                    throw new IllegalArgumentException("Invalid UUID: " + row[0]);
+            TranslatorUpdate update;
+            while((update = csvImports.next(csvReader, InvalidTranslatorCsvException::new)) != null) {
+                updates.add(update);
+                progress.rowParsed();
+
+                if(updates.size() == chunkSize) {
+                    persistChunk(applyUpdates(updates, missingIds), progress, persisted);
+                    updates.clear();
                 }
+            }
+        } catch (IOException | CsvValidationException | ArrayIndexOutOfBoundsException e) {
+            throw new InvalidTranslatorCsvException();
+        }
 
-                Translator foundTranslator = translatorRepository.findById(id).orElseThrow(() -> new TranslatorNotFoundException(id));
+        persistChunk(applyUpdates(updates, missingIds), progress, persisted);
 
-                String name = row[1];
+        if(!missingIds.isEmpty()) {
+            throw new TranslatorNotFoundException("ids", missingIds.values(), missingIds.total());
+        }
+    }
 
-                if(name != null && !name.isEmpty()) {
-                    foundTranslator.setName(name);
-                }
+    //Loads the translators of the whole chunk with one query and applies the rows in file order
+    private List<Translator> applyUpdates(List<TranslatorUpdate> updates, CappedSet<UUID> missingIds) {
+        List<Translator> updatedTranslators = new ArrayList<>(updates.size());
+        if(updates.isEmpty()) return updatedTranslators;
 
-                String email = row[2];
-
-                // If a new email has been passed, we need to check if it's not already in use
-                if((email != null && !email.equals(foundTranslator.getEmail()))) {
-                    Optional<Translator> translatorByEmail = translatorRepository.findByEmail(email);
-                    if(translatorByEmail.isPresent()) {
-                        throw new EmailAlreadyUsedException(email, translatorByEmail.get().getName());
-                    }else if(!CheckIsValidEmail.isValid(email)){
-                        throw new IllegalArgumentException("Email: " + email + " is not valid.");
-                    }else{
-                        //Updating documents author
-                        documentRepository.updateAuthor(foundTranslator.getEmail(), email);
-                        foundTranslator.setEmail(email);
-                    }
-                }
+        //Ordered, so the missing ids are reported in file order
+        Set<UUID> ids = new LinkedHashSet<>();
+        updates.forEach(update -> ids.add(update.id()));
+        Map<UUID, Translator> foundTranslators = new HashMap<>();
+        translatorRepository.findAllById(ids).forEach(translator -> foundTranslators.put(translator.getId(), translator));
 
-                String sourceLanguage = row[3];
+        for(UUID id : ids) {
+            if(!foundTranslators.containsKey(id)) missingIds.add(id);
+        }
 
-                if(sourceLanguage != null && !sourceLanguage.isEmpty()) {
-                    foundTranslator.setSourceLanguage(sourceLanguage);
-                }
+        //Once an id is missing nothing else is written, the rest of the file is only read to report all of them
+        if(!missingIds.isEmpty()) {
+            entityManager.clear();
+            return updatedTranslators;
+        }
 
-                String targetLanguage = row[4];
+        Set<String> newEmails = new HashSet<>();
+        for(TranslatorUpdate update : updates) {
+            if(update.email() != null && !update.email().equals(foundTranslators.get(update.id()).getEmail())) newEmails.add(update.email());
+        }
+        //Holder of each email as the rows are applied, a row can take an email that an earlier row of the chunk gave up
+        Map<String, Translator> translatorsByEmail = new HashMap<>();
+        if(!newEmails.isEmpty()) {
+            translatorRepository.findByEmailIn(newEmails).forEach(translator -> translatorsByEmail.put(translator.getEmail(), translator));
+        }
+        foundTranslators.values().forEach(translator -> translatorsByEmail.put(translator.getEmail(), translator));
+        Set<String> releasedEmails = new HashSet<>();
 
-                if(targetLanguage != null && !targetLanguage.isEmpty()) {
-                    foundTranslator.setTargetLanguage(targetLanguage);
+        for(TranslatorUpdate update : updates) {
+            Translator foundTranslator = foundTranslators.get(update.id());
+
+            if(update.name() != null && !update.name().isEmpty()) {
+                foundTranslator.setName(update.name());
+            }
+
+            String email = update.email();
+
+            // If a new email has been passed, we need to check if it's not already in use
+            if((email != null && !email.equals(foundTranslator.getEmail()))) {
+                Translator translatorByEmail = translatorsByEmail.get(email);
+                if(translatorByEmail != null) {
+                    throw new EmailAlreadyUsedException(email, translatorByEmail.getName());
+                }else if(!CheckIsValidEmail.isValid(email)){
+                    throw new IllegalArgumentException("Email: " + email + " is not valid.");
+                }else{
+                    //The updates are flushed in id order, the row that gave up the email has to reach the database first
+                    if(releasedEmails.contains(email)) entityManager.flush();
+
+                    //Updating documents author
+                    documentRepository.updateAuthor(foundTranslator.getEmail(), email);
+                    documentCache.invalidateAll();
+                    translatorsByEmail.remove(foundTranslator.getEmail());
+                    releasedEmails.add(foundTranslator.getEmail());
+                    translatorsByEmail.put(email, foundTranslator);
+                    foundTranslator.setEmail(email);
                 }
+            }
 
-                updatedTranslators.add(foundTranslator);
+            if(update.sourceLanguage() != null && !update.sourceLanguage().isEmpty()) {
+                foundTranslator.setSourceLanguage(update.sourceLanguage());
             }
-        } catch (IOException | CsvValidationException | ArrayIndexOutOfBoundsException e) {
+
+            if(update.targetLanguage() != null && !update.targetLanguage().isEmpty()) {
+                foundTranslator.setTargetLanguage(update.targetLanguage());
+            }
+
+            translatorCache.invalidate(update.id());
+            updatedTranslators.add(foundTranslator);
+        }
+        return updatedTranslators;
+    }
+
+    //Validates a name;email;source_language;target_language row. Runs on the parse pool, the email is checked against the database afterwards
+    private Translator parseRow(String[] row) {
+        String name = row[0];
+        String email = row[1];
+        String sourceLanguage = row[2];
+        String targetLanguage = row[3];
+
+        //Verifying is there's an empty value
+        if(name.isEmpty() || email.isEmpty() || sourceLanguage.isEmpty() || targetLanguage.isEmpty()){
             throw new InvalidTranslatorCsvException();
         }
 
-        return translatorRepository.saveAll(updatedTranslators);
+        //Verifying if the email is valid
+        if(!CheckIsValidEmail.isValid(email)){
+            throw new IllegalArgumentException("Email: " + email + " is not valid");
+        }
+
+        Translator translator = new Translator();
+        translator.setName(name);
+        translator.setEmail(email);
+        translator.setSourceLanguage(sourceLanguage);
+        translator.setTargetLanguage(targetLanguage);
+        return translator;
     }
 
+    private TranslatorUpdate parseUpdateRow(String[] row) {
+        UUID id;
+        try {
+            id = UUID.fromString(row[0]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid UUID: " + row[0]);
+        }
+        return new TranslatorUpdate(id, row[1], row[2], row[3], row[4]);
+    }
+
+    private void persistChunk(List<Translator> translators, ImportProgress progress, Consumer<List<Translator>> persisted) {
+        if(translators.isEmpty()) return;
+
+        List<Translator> saved = translatorRepository.saveAll(translators);
+
+        entityManager.flush();
+        entityManager.clear();
+
+        progress.rowsPersisted(saved.size());
+        persisted.accept(saved);
+        translators.clear();
+    }
+
+    private record TranslatorUpdate(UUID id, String name, String email, String sourceLanguage, String targetLanguage) {}
+
     public void delete(UUID id) {
         if(!translatorRepository.existsById(id)) {
             throw new TranslatorNotFoundException(id);
         }
 
         translatorRepository.deleteById(id);
+        translatorCache.invalidate(id);
+        //The translator's documents are removed with it
+        documentCache.invalidateAll();
     }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.bureau.translateit.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+public class BoundedTtlCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final LongSupplier nanoTime;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BoundedTtlCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, System::nanoTime);
+    }
+
+    //The clock only has to be monotonic, tests pass one they move by hand
+    public BoundedTtlCache(int maxSize, long ttlMillis, LongSupplier nanoTime) {
+        if(maxSize <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("Cache size and TTL should be greater than zero.");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        //Access order, so the eldest entry is always the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.nanoTime = nanoTime;
+    }
+
+    public V get(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if(entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if(entry.isExpired(nanoTime.getAsLong())) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.value;
+        }
+    }
+
+    //The loader runs outside the lock, so a slow load never blocks other readers
+    public V getOrLoad(K key, Function<K, V> loader) {
+        V value = get(key);
+        if(value != null) return value;
+
+        value = loader.apply(key);
+        if(value != null) put(key, value);
+        return value;
+    }
+
+    //Only the least recently used end is swept, expired entries found there go along the way,
+    //so a put costs as many steps as the entries it evicts instead of a scan of the whole cache.
+    //Expired entries further in are dropped when they are read or reach the end
+    public void put(K key, V value) {
+        long now = nanoTime.getAsLong();
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, now + ttlNanos));
+            Iterator<Entry<V>> iterator = entries.values().iterator();
+            while(iterator.hasNext()) {
+                Entry<V> eldest = iterator.next();
+                if(entries.size() <= maxSize && !eldest.isExpired(now)) break;
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
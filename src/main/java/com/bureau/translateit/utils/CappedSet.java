@@ -0,0 +1,40 @@
+package com.bureau.translateit.utils;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+//Keeps the first distinct values, in the order they were added, and only counts the ones past the cap.
+//Used to report the bad references of an import without the report growing with the file.
+//Past the cap values aren't remembered anymore, so a repeated one is counted again
+public class CappedSet<T> {
+
+    private final int cap;
+    private final Set<T> values = new LinkedHashSet<>();
+    private long overflow;
+
+    public CappedSet(int cap) {
+        this.cap = cap;
+    }
+
+    public void add(T value) {
+        if(values.contains(value)) return;
+        if(values.size() < cap) {
+            values.add(value);
+        } else {
+            overflow++;
+        }
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    public Set<T> values() {
+        return Collections.unmodifiableSet(values);
+    }
+
+    public long total() {
+        return values.size() + overflow;
+    }
+}
@@ -0,0 +1,37 @@
+package com.bureau.translateit.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+public class CountingInputStream extends FilterInputStream {
+
+    private final LongConsumer onRead;
+
+    public CountingInputStream(InputStream in, LongConsumer onRead) {
+        super(in);
+        this.onRead = onRead;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if(b != -1) onRead.accept(1);
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int count = super.read(b, off, len);
+        if(count > 0) onRead.accept(count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if(skipped > 0) onRead.accept(skipped);
+        return skipped;
+    }
+}
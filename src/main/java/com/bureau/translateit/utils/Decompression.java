@@ -0,0 +1,26 @@
+package com.bureau.translateit.utils;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+public class Decompression {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    //Detected by the gzip magic bytes instead of the file name, plain uploads are returned as they are
+    public static InputStream decompress(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+
+        if(first == 0x1f && second == 0x8b) {
+            //Inflated while it is read, the whole file is never in memory
+            return new GZIPInputStream(buffered, BUFFER_SIZE);
+        }
+        return buffered;
+    }
+}
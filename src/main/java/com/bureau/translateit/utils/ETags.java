@@ -0,0 +1,34 @@
+package com.bureau.translateit.utils;
+
+//Strong ETags built from an entity's @Version
+public class ETags {
+
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    //Weak comparison, as If-None-Match requires
+    public static boolean matches(String ifNoneMatch, long version) {
+        for(String tag : ifNoneMatch.split(",")) {
+            String value = tag.strip();
+            if(value.startsWith("W/")) value = value.substring(2);
+            if(value.equals("*") || value.equals(of(version))) return true;
+        }
+        return false;
+    }
+
+    //Version expected by an If-Match header, null when there's no header or it is *
+    public static Long expectedVersion(String ifMatch) {
+        if(ifMatch == null || ifMatch.strip().equals("*")) return null;
+
+        String value = ifMatch.strip();
+        if(value.length() < 3 || !value.startsWith("\"") || !value.endsWith("\"")) {
+            throw new IllegalArgumentException("Invalid If-Match: " + ifMatch + ". Use the ETag returned by GET");
+        }
+        try {
+            return Long.parseLong(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid If-Match: " + ifMatch + ". Use the ETag returned by GET");
+        }
+    }
+}
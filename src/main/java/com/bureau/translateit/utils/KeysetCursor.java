@@ -0,0 +1,39 @@
+package com.bureau.translateit.utils;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+//Opaque continuation token for listings ordered by (createdAt, id)
+public class KeysetCursor {
+
+    public static ScrollPosition decode(String cursor) {
+        if(cursor == null || cursor.isEmpty()) return ScrollPosition.keyset();
+
+        try {
+            String[] keys = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            Map<String, Object> position = new LinkedHashMap<>();
+            position.put("createdAt", Instant.parse(keys[0]));
+            position.put("id", UUID.fromString(keys[1]));
+            return ScrollPosition.forward(position);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    public static String next(Window<?> window) {
+        if(!window.hasNext() || window.isEmpty()) return null;
+
+        Map<String, Object> keys = ((KeysetScrollPosition) window.positionAt(window.size() - 1)).getKeys();
+        String position = keys.get("createdAt") + "|" + keys.get("id");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
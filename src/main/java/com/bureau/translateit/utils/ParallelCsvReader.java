@@ -0,0 +1,280 @@
+package com.bureau.translateit.utils;
+
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.ICSVParser;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+//Reads a CSV file on one thread, cuts it into chunks that end on a record boundary (a newline outside quotes)
+//and parses and maps the chunks on a fork-join pool. Records are handed back in file order, and a failure
+//is only thrown when the reader gets to its row, so callers see the same result as with a sequential CSVReader.
+//A bounded number of chunks is in flight, memory doesn't grow with the file.
+//The mapper runs on the pool threads, it must not touch the persistence context
+public class ParallelCsvReader<T> implements AutoCloseable {
+
+    private static final char QUOTE = ICSVParser.DEFAULT_QUOTE_CHARACTER;
+    private static final char ESCAPE = ICSVParser.DEFAULT_ESCAPE_CHARACTER;
+
+    private final Reader reader;
+    private final char separator;
+    private final int chunkChars;
+    private final ForkJoinPool pool;
+    private final Function<String[], T> mapper;
+    private final int window;
+    private final String[] headers;
+
+    //With a single worker the chunking would only add work, the rows are then read straight from the input
+    private final CSVReader sequentialReader;
+
+    private final Deque<ForkJoinTask<ParsedChunk<T>>> inFlight = new ArrayDeque<>();
+
+    //Characters read but not handed out yet, they always start on a record boundary
+    private char[] pending;
+    private int length;
+
+    //State of the scan over pending
+    private int scanned;
+    private int lastBoundary;
+    private long newlinesBeforeBoundary;
+    private long newlinesAfterBoundary;
+    private boolean inQuotes;
+    private boolean inField;
+    private boolean escaping;
+    private boolean endOfInput;
+
+    private ParsedChunk<T> current;
+    private int position;
+    private long nextChunkFirstLine;
+    private long lineNumber;
+
+    public ParallelCsvReader(InputStream input, char separator, int chunkChars, ForkJoinPool pool, Function<String[], T> mapper) throws IOException, CsvValidationException {
+        this.reader = new InputStreamReader(input);
+        this.separator = separator;
+        this.chunkChars = chunkChars;
+        this.pool = pool;
+        this.mapper = mapper;
+        this.window = pool.getParallelism() * 2;
+
+        if(pool.getParallelism() == 1) {
+            this.sequentialReader = open(reader);
+            this.headers = sequentialReader.readNext();
+            return;
+        }
+        this.sequentialReader = null;
+        this.pending = new char[chunkChars + 1024];
+
+        //The header is parsed on its own, nothing is mapped before the caller has checked it
+        Chunk header = nextChunk(true);
+        if(header == null) {
+            this.headers = null;
+        } else {
+            CSVReader headerReader = open(header.reader());
+            this.headers = headerReader.readNext();
+            this.nextChunkFirstLine = headerReader.getLinesRead() + 1;
+        }
+    }
+
+    public String[] getHeaders() {
+        return headers;
+    }
+
+    //Line of the file where the last record returned starts, the header being line 1
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public T next() throws IOException, CsvValidationException {
+        if(sequentialReader != null) {
+            //Set before reading, so a row that fails to parse is reported on its own line
+            lineNumber = sequentialReader.getLinesRead() + 1;
+            String[] row = sequentialReader.readNext();
+            return row != null ? mapper.apply(row) : null;
+        }
+
+        while(current == null || (position == current.records.size() && current.failure == null)) {
+            fill();
+            if(inFlight.isEmpty()) return null;
+            current = await(inFlight.poll());
+            position = 0;
+        }
+
+        if(position == current.records.size()) {
+            lineNumber = current.firstLine + current.failureLine;
+            throwFailure(current.failure);
+        }
+        lineNumber = current.firstLine + current.lines[position];
+        return current.records.get(position++);
+    }
+
+    //Also closes the input stream
+    @Override
+    public void close() throws IOException {
+        inFlight.forEach(task -> task.cancel(true));
+        inFlight.clear();
+        if(sequentialReader != null) {
+            sequentialReader.close();
+        } else {
+            reader.close();
+        }
+    }
+
+    private void fill() throws IOException {
+        while(inFlight.size() < window) {
+            Chunk chunk = nextChunk(false);
+            if(chunk == null) return;
+            long firstLine = nextChunkFirstLine;
+            nextChunkFirstLine += chunk.newlines();
+            inFlight.add(pool.submit(() -> parse(chunk, firstLine)));
+        }
+    }
+
+    private ParsedChunk<T> await(ForkJoinTask<ParsedChunk<T>> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("CSV parsing was interrupted.", e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            if(e.getCause() instanceof Error error) throw error;
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private ParsedChunk<T> parse(Chunk chunk, long firstLine) {
+        List<T> records = new ArrayList<>();
+        long[] lines = new long[64];
+        CSVReader csvReader = open(chunk.reader());
+        long linesRead = 0;
+        try {
+            String[] row;
+            while((row = csvReader.readNext()) != null) {
+                records.add(mapper.apply(row));
+                if(records.size() > lines.length) lines = Arrays.copyOf(lines, lines.length * 2);
+                lines[records.size() - 1] = linesRead;
+                linesRead = csvReader.getLinesRead();
+            }
+            return new ParsedChunk<>(firstLine, records, lines, null, 0);
+        } catch (Exception e) {
+            return new ParsedChunk<>(firstLine, records, lines, e, linesRead);
+        }
+    }
+
+    //Returns the next complete records, at least chunkChars characters of them or a single one, null at the end of the input
+    private Chunk nextChunk(boolean singleRecord) throws IOException {
+        while(true) {
+            if(scan(singleRecord) || lastBoundary >= chunkChars) return cut();
+            if(endOfInput) break;
+
+            //Only a record longer than the buffer makes it grow
+            if(length == pending.length) pending = Arrays.copyOf(pending, pending.length * 2);
+            int read = reader.read(pending, length, pending.length - length);
+            if(read == -1) {
+                endOfInput = true;
+            } else {
+                length += read;
+            }
+        }
+
+        //The last record may not end with a newline
+        if(length == 0) return null;
+        lastBoundary = length;
+        newlinesBeforeBoundary += newlinesAfterBoundary;
+        newlinesAfterBoundary = 0;
+        return cut();
+    }
+
+    //Follows the quote rules of CSVParser closely enough to tell the newlines that end a record.
+    //Returns true when singleRecord is set and one was found
+    private boolean scan(boolean singleRecord) {
+        char[] chars = pending;
+        boolean quoted = inQuotes;
+        boolean field = inField;
+        boolean escaped = escaping;
+        long newlines = newlinesAfterBoundary;
+        boolean found = false;
+
+        while(scanned < length) {
+            char c = chars[scanned++];
+            if(c == '\n') newlines++;
+            if(escaped) {
+                escaped = false;
+                if(c == QUOTE || c == ESCAPE) continue;
+            }
+            if(c == ESCAPE && (quoted || field)) {
+                escaped = true;
+            } else if(c == QUOTE) {
+                quoted = !quoted;
+                field = !field;
+            } else if(!quoted && c == separator) {
+                field = false;
+            } else if(!quoted && c == '\n') {
+                field = false;
+                lastBoundary = scanned;
+                newlinesBeforeBoundary += newlines;
+                newlines = 0;
+                if(singleRecord) {
+                    found = true;
+                    break;
+                }
+            } else if(c != '\r') {
+                field = true;
+            }
+        }
+
+        inQuotes = quoted;
+        inField = field;
+        escaping = escaped;
+        newlinesAfterBoundary = newlines;
+        return found;
+    }
+
+    private Chunk cut() {
+        Chunk chunk = new Chunk(Arrays.copyOf(pending, lastBoundary), newlinesBeforeBoundary);
+        System.arraycopy(pending, lastBoundary, pending, 0, length - lastBoundary);
+        length -= lastBoundary;
+        scanned -= lastBoundary;
+        lastBoundary = 0;
+        newlinesBeforeBoundary = 0;
+        return chunk;
+    }
+
+    private CSVReader open(Reader text) {
+        return new CSVReaderBuilder(text)
+                .withCSVParser(new CSVParserBuilder().withSeparator(separator).build())
+                .build();
+    }
+
+    private static void throwFailure(Exception failure) throws IOException, CsvValidationException {
+        if(failure instanceof RuntimeException runtimeException) throw runtimeException;
+        if(failure instanceof IOException ioException) throw ioException;
+        if(failure instanceof CsvValidationException validationException) throw validationException;
+        throw new IOException(failure);
+    }
+
+    private record Chunk(char[] chars, long newlines) {
+        Reader reader() {
+            return new CharArrayReader(chars);
+        }
+    }
+
+    //Records mapped before the first failure, with the line of each one relative to the start of the chunk
+    private record ParsedChunk<T>(long firstLine, List<T> records, long[] lines, Exception failure, long failureLine) {
+    }
+}
@@ -0,0 +1,71 @@
+-- Full-text search over documents, used by DocumentRepository.search.
+-- Not run by the application: apply it once per database with psql, in autocommit mode (no -1/--single-transaction),
+-- before the release that ships the search endpoint. Every step can be run again.
+--
+-- Rollout, without blocking writes on t_document:
+--   1. Functions, column and trigger. The column is nullable without a default, so adding it only changes the catalog
+--      and the ACCESS EXCLUSIVE lock is held for milliseconds. lock_timeout keeps it from queuing behind long transactions,
+--      rerun the script if it times out. New and updated rows get their search_vector from the trigger from then on.
+--   2. The backfill fills the existing rows in batches, committing after each one.
+--   3. The GIN index is built CONCURRENTLY, reads and writes continue meanwhile. If the build fails it leaves an
+--      INVALID index: DROP INDEX CONCURRENTLY idx_document_search, then run the script again.
+-- Until step 2 is done searches miss the rows not backfilled yet, until step 3 is done they scan the table.
+-- Needs PostgreSQL 14 or later. Databases where search_vector already exists as a generated column,
+-- from the schema.sql that used to run at startup, are done: skip this script there.
+
+SET lock_timeout = '5s';
+
+-- Text search configuration for a document locale, unknown languages fall back to simple
+CREATE OR REPLACE FUNCTION locale_ts_config(locale text) RETURNS regconfig AS $$
+    SELECT CASE lower(split_part(coalesce(locale, ''), '-', 1))
+        WHEN 'en' THEN 'english'
+        WHEN 'es' THEN 'spanish'
+        WHEN 'fr' THEN 'french'
+        WHEN 'pt' THEN 'portuguese'
+        WHEN 'de' THEN 'german'
+        WHEN 'it' THEN 'italian'
+        WHEN 'nl' THEN 'dutch'
+        WHEN 'ru' THEN 'russian'
+        ELSE 'simple'
+    END::regconfig
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
+-- Stemmed lexemes for searches in the document locale, plus unstemmed ones for searches without a locale
+CREATE OR REPLACE FUNCTION document_search_vector(locale text, subject text, content text) RETURNS tsvector AS $$
+    SELECT setweight(to_tsvector(locale_ts_config(locale), subject), 'A') ||
+           setweight(to_tsvector(locale_ts_config(locale), content), 'B') ||
+           setweight(to_tsvector('simple', subject || ' ' || content), 'D')
+$$ LANGUAGE sql IMMUTABLE PARALLEL SAFE;
+
+ALTER TABLE t_document ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+CREATE OR REPLACE FUNCTION document_search_vector_trigger() RETURNS trigger AS $$
+BEGIN
+    NEW.search_vector := document_search_vector(NEW.locale, NEW.subject, NEW.content);
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+-- Fires for the JPA writes, the COPY merge and the locale backfill alike
+CREATE OR REPLACE TRIGGER trg_document_search_vector
+    BEFORE INSERT OR UPDATE OF locale, subject, content ON t_document
+    FOR EACH ROW EXECUTE FUNCTION document_search_vector_trigger();
+
+RESET lock_timeout;
+
+-- Short transactions, so row locks are only held on one batch at a time
+DO $$
+DECLARE
+    updated integer;
+BEGIN
+    LOOP
+        UPDATE t_document SET search_vector = document_search_vector(locale, subject, content)
+        WHERE id IN (SELECT id FROM t_document WHERE search_vector IS NULL LIMIT 5000);
+        GET DIAGNOSTICS updated = ROW_COUNT;
+        EXIT WHEN updated = 0;
+        COMMIT;
+    END LOOP;
+END
+$$;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_document_search ON t_document USING gin (search_vector);
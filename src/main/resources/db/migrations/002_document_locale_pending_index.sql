@@ -0,0 +1,5 @@
+-- Only the rows waiting for LocaleBackfillWorker, in the order it claims them.
+-- Not run by the application: apply it once per database with psql, in autocommit mode, before enabling
+-- locale.detection.deferred. The build doesn't block writes. If it fails it leaves an INVALID index:
+-- DROP INDEX CONCURRENTLY idx_document_locale_pending, then run the script again.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_document_locale_pending ON t_document (created_at) WHERE locale = 'pending';
@@ -0,0 +1,97 @@
+package com.bureau.translateit.locale;
+
+import com.bureau.translateit.models.LocaleCacheEntry;
+import com.bureau.translateit.repositories.LocaleCacheRepository;
+import com.bureau.translateit.utils.ContentHash;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class LocaleCacheTest {
+
+	private final AtomicLong now = new AtomicLong();
+
+	private final LocaleCacheRepository repository = mock(LocaleCacheRepository.class);
+
+	private final LocaleCache cache = new LocaleCache(2, 1, now::get);
+
+	LocaleCacheTest() {
+		ReflectionTestUtils.setField(cache, "localeCacheRepository", repository);
+		when(repository.findById(any())).thenReturn(Optional.empty());
+	}
+
+	@Test
+	void memoryHitsDontReachTheTable() {
+		cache.put("bom dia", "pt-BR");
+
+		assertEquals("pt-BR", cache.get("bom dia"));
+		verify(repository, never()).findById(any());
+		verify(repository).insertMissing(Map.of(ContentHash.sha256("bom dia"), "pt-BR"));
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	void expiredEntriesAreReadBackFromTheTable() {
+		cache.put("bom dia", "pt-BR");
+		when(repository.findById(ContentHash.sha256("bom dia"))).thenReturn(Optional.of(entry("bom dia", "pt-BR")));
+
+		now.addAndGet(60_000_000_000L);
+		assertEquals("pt-BR", cache.get("bom dia"));
+		assertEquals("pt-BR", cache.get("bom dia"));
+
+		verify(repository, times(1)).findById(any());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	void leastRecentlyUsedContentIsEvicted() {
+		cache.put("one", "en-US");
+		cache.put("two", "en-US");
+		cache.get("one");
+		cache.put("three", "en-US");
+
+		assertNull(cache.get("two"));
+		assertEquals("en-US", cache.get("one"));
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	void pendingAndEmptyLocalesAreNotCached() {
+		cache.putAll(Map.of("first", LocaleDetector.PENDING, "second", ""));
+
+		assertNull(cache.get("first"));
+		assertNull(cache.get("second"));
+		verify(repository).insertMissing(Map.of());
+	}
+
+	@Test
+	void getAllLooksUpOnlyTheMissingContents() {
+		cache.put("cached", "pt-BR");
+		when(repository.findAllById(List.of(ContentHash.sha256("stored"), ContentHash.sha256("unknown"))))
+				.thenReturn(List.of(entry("stored", "en-US")));
+
+		Map<String, String> locales = cache.getAll(List.of("cached", "stored", "unknown"));
+
+		assertEquals(Map.of("cached", "pt-BR", "stored", "en-US"), locales);
+		verify(repository, times(1)).findAllById(any());
+	}
+
+	private static LocaleCacheEntry entry(String content, String locale) {
+		LocaleCacheEntry entry = new LocaleCacheEntry();
+		entry.setContentHash(ContentHash.sha256(content));
+		entry.setLocale(locale);
+		entry.setCreatedAt(Instant.now());
+		return entry;
+	}
+}
@@ -0,0 +1,31 @@
+package com.bureau.translateit.locale;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NgramLanguageIdentifierTest {
+
+	private final NgramLanguageIdentifier identifier = new NgramLanguageIdentifier(
+			List.of("en-US", "es-ES", "fr-FR", "pt-BR", "de-DE", "it-IT"), 20);
+
+	@Test
+	void identifiesCommonLocales() {
+		assertEquals("en-US", identifier.identify("Please send the signed contract to our office before the end of the week.").locale());
+		assertEquals("es-ES", identifier.identify("Por favor, envíe el contrato firmado a nuestra oficina antes del final de la semana.").locale());
+		assertEquals("fr-FR", identifier.identify("Veuillez envoyer le contrat signé à notre bureau avant la fin de la semaine.").locale());
+		assertEquals("pt-BR", identifier.identify("Por favor, envie o contrato assinado para o nosso escritório antes do fim da semana.").locale());
+		assertEquals("de-DE", identifier.identify("Bitte senden Sie den unterschriebenen Vertrag vor Ende der Woche an unser Büro.").locale());
+		assertEquals("it-IT", identifier.identify("Per favore, inviate il contratto firmato al nostro ufficio prima della fine della settimana.").locale());
+	}
+
+	@Test
+	void shortTextsHaveLowConfidence() {
+		assertTrue(identifier.identify("Hello").confidence() < 0.9);
+		assertEquals("", identifier.identify("  123 !! ").locale());
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.bureau.translateit.openai;
+
+import com.bureau.translateit.config.OpenAiHttpConfig;
+import com.bureau.translateit.exceptions.OpenAiUnavailableException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenAiApiClientTest {
+
+	private static final String ANSWER = "{\"choices\":[{\"message\":{\"content\":\"en-US\"}}]}";
+
+	private HttpServer server;
+	private final AtomicInteger requests = new AtomicInteger();
+
+	@AfterEach
+	void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	void retriesThrottledRequestsAfterRetryAfter() throws IOException {
+		startServer(exchange -> {
+			if(requests.incrementAndGet() == 1) {
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				respond(exchange, 429, "{}");
+			} else {
+				respond(exchange, 200, ANSWER);
+			}
+		});
+		OpenAiApiClient client = client(1000, 3, 5);
+
+		long start = System.nanoTime();
+		assertEquals("en-US", client.getLocale("Hello world"));
+		assertEquals(2, requests.get());
+		assertTrue(System.nanoTime() - start >= 1_000_000_000L, "Retry-After wasn't honoured");
+	}
+
+	@Test
+	void opensCircuitAfterRepeatedFailures() throws IOException {
+		startServer(exchange -> {
+			requests.incrementAndGet();
+			respond(exchange, 503, "{}");
+		});
+		OpenAiApiClient client = client(1000, 2, 2);
+
+		assertThrows(OpenAiUnavailableException.class, () -> client.getLocale("Hello world"));
+		assertThrows(OpenAiUnavailableException.class, () -> client.getLocale("Hello world"));
+		assertEquals(4, requests.get());
+
+		//Open: fails fast without calling the server
+		assertThrows(OpenAiUnavailableException.class, () -> client.getLocale("Hello world"));
+		assertEquals(4, requests.get());
+	}
+
+	@Test
+	void slowResponsesAreCutByTheReadTimeout() throws IOException {
+		startServer(exchange -> {
+			requests.incrementAndGet();
+			try {
+				Thread.sleep(3000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			respond(exchange, 200, ANSWER);
+		});
+		OpenAiApiClient client = client(200, 2, 5);
+
+		long start = System.nanoTime();
+		assertThrows(OpenAiUnavailableException.class, () -> client.getLocale("Hello world"));
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+		assertTrue(elapsedMs < 1500, "Took " + elapsedMs + "ms");
+	}
+
+	private OpenAiApiClient client(long readTimeoutMs, int maxAttempts, int failureThreshold) {
+		OpenAiHttpConfig config = new OpenAiHttpConfig();
+		String url = "http://localhost:" + server.getAddress().getPort() + "/v1/chat/completions";
+		OpenAiRequestScheduler scheduler = new OpenAiRequestScheduler(1000, 100000, 5000, 4, 1, 8, 5000);
+		return new OpenAiApiClient(config.openAiRestTemplate(500, readTimeoutMs), config.openAiCircuitBreaker(failureThreshold, 60),
+				scheduler, "test-key", url, 3000, 50, maxAttempts, 10, 5000);
+	}
+
+	private void startServer(StubHandler handler) throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/v1/chat/completions", exchange -> {
+			exchange.getRequestBody().readAllBytes();
+			handler.handle(exchange);
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		exchange.getResponseBody().write(bytes);
+		exchange.close();
+	}
+
+	private interface StubHandler {
+		void handle(HttpExchange exchange) throws IOException;
+	}
+
+}
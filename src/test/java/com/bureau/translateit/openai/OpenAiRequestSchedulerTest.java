@@ -0,0 +1,71 @@
+package com.bureau.translateit.openai;
+
+import com.bureau.translateit.exceptions.OpenAiUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenAiRequestSchedulerTest {
+
+	@Test
+	void interactiveCallsGoAheadOfWaitingBulkCalls() throws Exception {
+		OpenAiRequestScheduler scheduler = new OpenAiRequestScheduler(1000, 100000, 5000, 1, 1, 1, 5000);
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch finish = new CountDownLatch(1);
+		List<String> order = new CopyOnWriteArrayList<>();
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			//Holds the only slot while the others queue up
+			executor.submit(() -> scheduler.execute(OpenAiRequestScheduler.Priority.BULK, 10, () -> {
+				running.countDown();
+				return finish.await(5, TimeUnit.SECONDS);
+			}));
+			running.await();
+
+			executor.submit(() -> scheduler.execute(OpenAiRequestScheduler.Priority.BULK, 10, () -> order.add("bulk")));
+			awaitWaiting(scheduler, 1);
+			executor.submit(() -> scheduler.execute(OpenAiRequestScheduler.Priority.INTERACTIVE, 10, () -> order.add("interactive")));
+			awaitWaiting(scheduler, 2);
+
+			finish.countDown();
+		}
+
+		assertEquals(List.of("interactive", "bulk"), order);
+	}
+
+	@Test
+	void throttlingHalvesTheConcurrencyLimit() {
+		OpenAiRequestScheduler scheduler = new OpenAiRequestScheduler(1000, 100000, 5000, 8, 1, 16, 5000);
+
+		assertThrows(HttpClientErrorException.class, () -> scheduler.execute(OpenAiRequestScheduler.Priority.BULK, 10, () -> {
+			throw HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", null, null, null);
+		}));
+		assertEquals(4, scheduler.getConcurrencyLimit());
+		assertEquals(0, scheduler.getInFlight());
+	}
+
+	@Test
+	void callsOverTheRequestBudgetWaitUntilTheLimitGivesUp() throws Exception {
+		OpenAiRequestScheduler scheduler = new OpenAiRequestScheduler(1, 100000, 100, 4, 1, 4, 5000);
+
+		assertEquals("first", scheduler.execute(OpenAiRequestScheduler.Priority.INTERACTIVE, 10, () -> "first"));
+		assertThrows(OpenAiUnavailableException.class, () -> scheduler.execute(OpenAiRequestScheduler.Priority.INTERACTIVE, 10, () -> "second"));
+	}
+
+	private static void awaitWaiting(OpenAiRequestScheduler scheduler, int count) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while(scheduler.getWaiting() < count && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.bureau.translateit.repositories;
+
+import com.bureau.translateit.models.Translator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Import(DocumentBulkRepository.class)
+class DocumentBulkRepositoryTest extends EmbeddedPostgresTest {
+
+	@Autowired
+	private DocumentBulkRepository documentBulkRepository;
+
+	@Autowired
+	private TranslatorRepository translatorRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void copiesAndMergesStagedRows() {
+		translator("ana@mail.com");
+		documentBulkRepository.createStagingTable();
+
+		try (DocumentBulkRepository.StagingCopy copy = documentBulkRepository.openStagingCopy()) {
+			copy.write(1, "First", "Text with \"quotes\", commas\nand a newline", "en-US", "ana@mail.com");
+			copy.write(2, "Second", "Same text twice", null, "ana@mail.com");
+			copy.write(3, "Second", "Same text twice", "", "ana@mail.com");
+			assertEquals(3, copy.finish());
+		}
+
+		assertTrue(documentBulkRepository.findMissingAuthors(10).isEmpty());
+		assertEquals(3, documentBulkRepository.mergeStaged());
+
+		List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT subject, content, locale, version FROM t_document ORDER BY subject, locale NULLS FIRST");
+		assertEquals("Text with \"quotes\", commas\nand a newline", rows.get(0).get("content"));
+		assertEquals("en-US", rows.get(0).get("locale"));
+		//NULL and empty locales stay apart, NULL is detected later and empty was sent on purpose
+		assertNull(rows.get(1).get("locale"));
+		assertEquals("", rows.get(2).get("locale"));
+		assertEquals(0L, rows.get(2).get("version"));
+	}
+
+	@Test
+	void reportsMissingAuthorsBeforeMerging() {
+		translator("ana@mail.com");
+		documentBulkRepository.createStagingTable();
+
+		try (DocumentBulkRepository.StagingCopy copy = documentBulkRepository.openStagingCopy()) {
+			copy.write(1, "First", "Text", null, "ana@mail.com");
+			copy.write(2, "Second", "Text", null, "bia@mail.com");
+			copy.write(3, "Third", "Text", null, "caio@mail.com");
+			copy.write(4, "Fourth", "Text", null, "caio@mail.com");
+			copy.finish();
+		}
+
+		assertEquals(List.of("bia@mail.com"), documentBulkRepository.findMissingAuthors(1));
+		assertEquals(2, documentBulkRepository.countMissingAuthors());
+	}
+
+	private void translator(String email) {
+		Translator translator = new Translator();
+		translator.setName("Translator");
+		translator.setEmail(email);
+		translator.setSourceLanguage("pt-BR");
+		translator.setTargetLanguage("en-US");
+		translatorRepository.saveAndFlush(translator);
+	}
+}
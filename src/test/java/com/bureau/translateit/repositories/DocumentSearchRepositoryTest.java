@@ -0,0 +1,118 @@
+package com.bureau.translateit.repositories;
+
+import com.bureau.translateit.models.Document;
+import com.bureau.translateit.models.Translator;
+import com.bureau.translateit.models.dtos.DocumentSearchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentSearchRepositoryTest extends EmbeddedPostgresTest {
+
+	private static boolean migrated;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private TranslatorRepository translatorRepository;
+
+	@Autowired
+	private DocumentRepository documentRepository;
+
+	//Applied the way an operator would, on its own autocommit connection, with a row already stored to backfill
+	@BeforeEach
+	void migrate() throws IOException, SQLException {
+		if(migrated) return;
+		try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+			statement.execute("INSERT INTO t_translator (id, name, email, source_language, target_language, created_at, version) " +
+					"VALUES ('" + UUID.randomUUID() + "', 'Stored', 'stored@mail.com', 'pt-BR', 'en-US', now(), 0)");
+			statement.execute("INSERT INTO t_document (id, subject, content, locale, author, created_at, version, translator_id) " +
+					"SELECT '" + UUID.randomUUID() + "', 'Stored before', 'Backfilled content', 'en-US', email, now(), 0, id FROM t_translator WHERE email = 'stored@mail.com'");
+			run(statement, "db/migrations/001_document_search.sql");
+			run(statement, "db/migrations/002_document_locale_pending_index.sql");
+		}
+		migrated = true;
+	}
+
+	@Test
+	void storedRowsAreBackfilled() {
+		Slice<DocumentSearchResult> results = documentRepository.search("backfilled", null, PageRequest.of(0, 10));
+
+		assertEquals(1, results.getNumberOfElements());
+		assertEquals("Stored before", results.getContent().get(0).getSubject());
+	}
+
+	@Test
+	void newRowsAreSearchableInTheirLocale() {
+		Translator translator = translator();
+		document(translator, "Schedule", "The translators are running late", "en-US");
+		document(translator, "Agenda", "Os tradutores estão atrasados", "pt-BR");
+
+		//The query is stemmed in the locale's language, the document in its own
+		assertEquals("Schedule", documentRepository.search("runs", "en-US", PageRequest.of(0, 10)).getContent().get(0).getSubject());
+		assertEquals("Agenda", documentRepository.search("tradutores", null, PageRequest.of(0, 10)).getContent().get(0).getSubject());
+	}
+
+	@Test
+	void resultsComeInSlices() {
+		Translator translator = translator();
+		for(int i = 0; i < 3; i++) document(translator, "Glossary " + i, "Terminology glossary", "en-US");
+
+		Slice<DocumentSearchResult> first = documentRepository.search("terminology", null, PageRequest.of(0, 2));
+		Slice<DocumentSearchResult> second = documentRepository.search("terminology", null, PageRequest.of(1, 2));
+
+		assertEquals(2, first.getNumberOfElements());
+		assertTrue(first.hasNext());
+		assertEquals(1, second.getNumberOfElements());
+		assertFalse(second.hasNext());
+	}
+
+	//Splits on the semicolons that end a line outside a dollar-quoted body, like psql does for this script
+	private static void run(Statement statement, String script) throws IOException, SQLException {
+		String sql = new ClassPathResource(script).getContentAsString(StandardCharsets.UTF_8);
+		StringBuilder current = new StringBuilder();
+		boolean inBody = false;
+		for(String line : sql.split("\n")) {
+			if(current.isEmpty() && line.startsWith("--")) continue;
+			current.append(line).append('\n');
+			if(line.split("\\$\\$", -1).length % 2 == 0) inBody = !inBody;
+			if(!inBody && line.stripTrailing().endsWith(";")) {
+				statement.execute(current.toString());
+				current.setLength(0);
+			}
+		}
+	}
+
+	private Translator translator() {
+		Translator translator = new Translator();
+		translator.setName("Translator");
+		translator.setEmail("ana@mail.com");
+		translator.setSourceLanguage("pt-BR");
+		translator.setTargetLanguage("en-US");
+		return translatorRepository.saveAndFlush(translator);
+	}
+
+	private void document(Translator translator, String subject, String content, String locale) {
+		Document document = new Document();
+		document.setSubject(subject);
+		document.setContent(content);
+		document.setLocale(locale);
+		document.setAuthor(translator.getEmail());
+		document.setTranslator(translator);
+		documentRepository.saveAndFlush(document);
+	}
+}
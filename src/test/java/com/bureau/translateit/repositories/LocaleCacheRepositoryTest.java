@@ -0,0 +1,53 @@
+package com.bureau.translateit.repositories;
+
+import com.bureau.translateit.models.LocaleCacheEntry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//H2 in PostgreSQL mode stands in for the database, it understands the ON CONFLICT insert
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class LocaleCacheRepositoryTest {
+
+	@Autowired
+	private LocaleCacheRepository localeCacheRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void insertMissingKeepsTheFirstLocaleStored() {
+		localeCacheRepository.insertMissing(Map.of("a", "en-US", "b", "fr-FR"));
+		localeCacheRepository.insertMissing(Map.of("a", "es-ES", "c", "de-DE"));
+
+		List<LocaleCacheEntry> entries = localeCacheRepository.findAllById(List.of("a", "b", "c", "d"));
+
+		assertEquals(3, entries.size());
+		assertEquals("en-US", localeCacheRepository.findById("a").orElseThrow().getLocale());
+		assertEquals("de-DE", localeCacheRepository.findById("c").orElseThrow().getLocale());
+	}
+
+	@Test
+	void deleteCreatedBeforeOnlyRemovesOldEntries() {
+		localeCacheRepository.insertMissing(Map.of("recent", "en-US", "old", "pt-BR"));
+		jdbcTemplate.update("UPDATE t_locale_cache SET created_at = ? WHERE content_hash = 'old'",
+				Timestamp.from(Instant.now().minus(Duration.ofDays(400))));
+
+		assertEquals(1, localeCacheRepository.deleteCreatedBefore(Instant.now().minus(Duration.ofDays(180))));
+		assertTrue(localeCacheRepository.existsById("recent"));
+		assertFalse(localeCacheRepository.existsById("old"));
+	}
+}
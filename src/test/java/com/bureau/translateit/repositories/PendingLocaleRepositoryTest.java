@@ -0,0 +1,89 @@
+package com.bureau.translateit.repositories;
+
+import com.bureau.translateit.models.Document;
+import com.bureau.translateit.models.Translator;
+import com.bureau.translateit.repositories.PendingLocaleRepository.PendingDocument;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Import(PendingLocaleRepository.class)
+class PendingLocaleRepositoryTest extends EmbeddedPostgresTest {
+
+	private static final String PENDING = "pending";
+
+	@Autowired
+	private PendingLocaleRepository pendingLocaleRepository;
+
+	@Autowired
+	private TranslatorRepository translatorRepository;
+
+	@Autowired
+	private DocumentRepository documentRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void claimedDocumentsAreSkippedUntilTheLeasePasses() {
+		Translator translator = translator();
+		UUID first = document(translator, "first", PENDING);
+		UUID second = document(translator, "second", PENDING);
+		UUID third = document(translator, "third", PENDING);
+		document(translator, "done", "en-US");
+
+		List<PendingDocument> claimed = pendingLocaleRepository.claim(PENDING, 2, Duration.ofMinutes(2));
+		assertEquals(List.of(first, second), claimed.stream().map(PendingDocument::id).toList());
+		assertEquals(List.of(third), pendingLocaleRepository.claim(PENDING, 2, Duration.ofMinutes(2)).stream().map(PendingDocument::id).toList());
+		assertTrue(pendingLocaleRepository.claim(PENDING, 2, Duration.ofMinutes(2)).isEmpty());
+
+		jdbcTemplate.update("UPDATE t_document SET locale_claimed_until = now() - interval '1 second' WHERE id = ?", second);
+		assertEquals(List.of(second), pendingLocaleRepository.claim(PENDING, 2, Duration.ofMinutes(2)).stream().map(PendingDocument::id).toList());
+	}
+
+	@Test
+	void completeKeepsLocalesSetInTheMeantime() {
+		Translator translator = translator();
+		UUID untouched = document(translator, "untouched", PENDING);
+		UUID edited = document(translator, "edited", PENDING);
+		pendingLocaleRepository.claim(PENDING, 10, Duration.ofMinutes(2));
+
+		//A user sets the locale while the worker is detecting it
+		jdbcTemplate.update("UPDATE t_document SET locale = 'es-ES' WHERE id = ?", edited);
+
+		assertEquals(List.of(untouched), pendingLocaleRepository.complete(PENDING, Map.of(untouched, "fr-FR", edited, "fr-FR")));
+		assertEquals(Map.of("locale", "fr-FR", "version", 1L, "claimed", false), row(untouched));
+		assertEquals("es-ES", row(edited).get("locale"));
+	}
+
+	private Map<String, Object> row(UUID id) {
+		return jdbcTemplate.queryForMap("SELECT locale, version, locale_claimed_until IS NOT NULL AS claimed FROM t_document WHERE id = ?", id);
+	}
+
+	private Translator translator() {
+		Translator translator = new Translator();
+		translator.setName("Translator");
+		translator.setEmail("ana@mail.com");
+		translator.setSourceLanguage("pt-BR");
+		translator.setTargetLanguage("en-US");
+		return translatorRepository.saveAndFlush(translator);
+	}
+
+	private UUID document(Translator translator, String subject, String locale) {
+		Document document = new Document();
+		document.setSubject(subject);
+		document.setContent("Content of " + subject);
+		document.setLocale(locale);
+		document.setAuthor(translator.getEmail());
+		document.setTranslator(translator);
+		return documentRepository.saveAndFlush(document).getId();
+	}
+}
@@ -0,0 +1,42 @@
+package com.bureau.translateit.repositories;
+
+import com.bureau.translateit.models.Translator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class TranslatorRepositoryTest {
+
+	@Autowired
+	private TranslatorRepository translatorRepository;
+
+	@AfterEach
+	void cleanUp() {
+		translatorRepository.deleteAll();
+	}
+
+	//Schedulers and async imports call it without a surrounding transaction or an open session
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void findByEmailWorksOutsideATransaction() {
+		Translator translator = new Translator();
+		translator.setName("Ana");
+		translator.setEmail("ana@mail.com");
+		translator.setSourceLanguage("pt-BR");
+		translator.setTargetLanguage("en-US");
+		translatorRepository.save(translator);
+
+		assertEquals("Ana", translatorRepository.findByEmail("ana@mail.com").orElseThrow().getName());
+		assertTrue(translatorRepository.findByEmail("nobody@mail.com").isEmpty());
+	}
+}
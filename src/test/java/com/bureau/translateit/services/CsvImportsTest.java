@@ -0,0 +1,58 @@
+package com.bureau.translateit.services;
+
+import com.bureau.translateit.exceptions.InvalidDocumentCsvException;
+import com.bureau.translateit.utils.ParallelCsvReader;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvImportsTest {
+
+	private static final ForkJoinPool pool = new ForkJoinPool(2);
+
+	private final CsvImports csvImports = new CsvImports();
+
+	CsvImportsTest() {
+		ReflectionTestUtils.setField(csvImports, "csvParsePool", pool);
+		ReflectionTestUtils.setField(csvImports, "parseChunkChars", 16);
+	}
+
+	@AfterAll
+	static void shutdown() {
+		pool.shutdown();
+	}
+
+	@Test
+	void formatErrorsNameTheirLine() throws Exception {
+		String csv = "subject;content\nfirst;\"two\nlines\"\nmissing a field\n";
+
+		try (ParallelCsvReader<String> reader = csvImports.open(stream(csv), row -> row[0] + row[1])) {
+			assertEquals("firsttwo\nlines", csvImports.next(reader, InvalidDocumentCsvException::new));
+			InvalidDocumentCsvException e = assertThrows(InvalidDocumentCsvException.class, () -> csvImports.next(reader, InvalidDocumentCsvException::new));
+			assertTrue(e.getMessage().startsWith("Line 4: "), e.getMessage());
+		}
+	}
+
+	@Test
+	void invalidValuesKeepTheirMessage() throws Exception {
+		String csv = "id\n" + UUID.randomUUID() + "\nnot-a-uuid\n";
+
+		try (ParallelCsvReader<UUID> reader = csvImports.open(stream(csv), row -> UUID.fromString(row[0]))) {
+			assertNotNull(csvImports.next(reader, InvalidDocumentCsvException::new));
+			IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> csvImports.next(reader, InvalidDocumentCsvException::new));
+			assertTrue(e.getMessage().startsWith("Line 3: "), e.getMessage());
+			assertTrue(e.getMessage().contains("not-a-uuid"), e.getMessage());
+		}
+	}
+
+	private static ByteArrayInputStream stream(String csv) {
+		return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,153 @@
+package com.bureau.translateit.services;
+
+import com.bureau.translateit.config.EntityCacheConfig;
+import com.bureau.translateit.config.ImportExecutorConfig;
+import com.bureau.translateit.exceptions.PreconditionFailedException;
+import com.bureau.translateit.exceptions.TranslatorNotFoundException;
+import com.bureau.translateit.locale.LocaleDetector;
+import com.bureau.translateit.models.Document;
+import com.bureau.translateit.models.Translator;
+import com.bureau.translateit.models.dtos.DocumentDto;
+import com.bureau.translateit.repositories.DocumentBulkRepository;
+import com.bureau.translateit.repositories.DocumentRepository;
+import com.bureau.translateit.repositories.TranslatorRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = "imports.chunk-size=2")
+@Import({DocumentService.class, DocumentBulkRepository.class, RecordCountCache.class, CsvImports.class, EntityCacheConfig.class, ImportExecutorConfig.class, JacksonAutoConfiguration.class})
+class DocumentServiceTest {
+
+	@Autowired
+	private DocumentService documentService;
+
+	@Autowired
+	private DocumentRepository documentRepository;
+
+	@Autowired
+	private TranslatorRepository translatorRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@MockitoBean
+	private LocaleDetector localeDetector;
+
+	@AfterEach
+	void cleanUp() {
+		documentRepository.deleteAll();
+		translatorRepository.deleteAll();
+	}
+
+	//Open-in-view is off, controllers call the service without a transaction or an open session
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void updateWorksOutsideATransaction() {
+		save("ana@mail.com");
+		UUID id = documentService.create(dto("Draft", "ana@mail.com")).getId();
+
+		Document updated = documentService.update(id, dto("Final", "ana@mail.com"), null);
+
+		assertEquals("Final", updated.getSubject());
+		assertEquals(1, updated.getVersion());
+		assertEquals("Final", documentRepository.findById(id).orElseThrow().getSubject());
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void updateWithAStaleVersionIsRejected() {
+		save("ana@mail.com");
+		UUID id = documentService.create(dto("Draft", "ana@mail.com")).getId();
+		documentService.update(id, dto("Reviewed", "ana@mail.com"), 0L);
+
+		//The version the client read before the first update
+		assertThrows(PreconditionFailedException.class, () -> documentService.update(id, dto("Final", "ana@mail.com"), 0L));
+		assertEquals("Reviewed", documentRepository.findById(id).orElseThrow().getSubject());
+		assertEquals("Final", documentService.update(id, dto("Final", "ana@mail.com"), 1L).getSubject());
+	}
+
+	//The author is resolved by the first chunk, the later ones get it again from its id
+	@Test
+	void authorsAreResolvedInEveryChunk() {
+		Translator translator = save("ana@mail.com");
+
+		StringBuilder csv = new StringBuilder("subject;content;locale;author\n");
+		for(int i = 0; i < 5; i++) csv.append("subject ").append(i).append(";content;en-US;ana@mail.com\n");
+
+		assertEquals(5, documentService.createFromCsvSummary(upload(csv.toString())).rowsPersisted());
+		entityManager.clear();
+
+		List<Document> documents = documentRepository.findAll();
+		assertEquals(5, documents.size());
+		documents.forEach(document -> assertEquals(translator.getId(), document.getTranslator().getId()));
+	}
+
+	@Test
+	void missingAuthorsOfEveryChunkAreReported() {
+		save("ana@mail.com");
+
+		String csv = "subject;content;locale;author\n" +
+				"first;content;en-US;ana@mail.com\n" +
+				"second;content;en-US;nobody@mail.com\n" +
+				"third;content;en-US;ana@mail.com\n" +
+				"fourth;content;en-US;someone@mail.com\n";
+
+		TranslatorNotFoundException e = assertThrows(TranslatorNotFoundException.class, () -> documentService.createFromCsvSummary(upload(csv)));
+		assertTrue(e.getMessage().contains("nobody@mail.com"), e.getMessage());
+		assertTrue(e.getMessage().contains("someone@mail.com"), e.getMessage());
+	}
+
+	@Test
+	void onlyTheFirstMissingAuthorsAreListed() {
+		StringBuilder csv = new StringBuilder("subject;content;locale;author\n");
+		for(int i = 0; i < 1001; i++) csv.append("subject;content;en-US;nobody").append(i).append("@mail.com\n");
+
+		TranslatorNotFoundException e = assertThrows(TranslatorNotFoundException.class, () -> documentService.createFromCsvSummary(upload(csv.toString())));
+		assertTrue(e.getMessage().contains("nobody999@mail.com"), e.getMessage());
+		assertFalse(e.getMessage().contains("nobody1000@mail.com"), e.getMessage());
+		assertTrue(e.getMessage().contains("and 1 more (1001 in total)"), e.getMessage());
+	}
+
+	private static DocumentDto dto(String subject, String author) {
+		DocumentDto documentDto = new DocumentDto();
+		documentDto.setSubject(subject);
+		documentDto.setContent("Content of " + subject);
+		documentDto.setLocale("en-US");
+		documentDto.setAuthor(author);
+		return documentDto;
+	}
+
+	private Translator save(String email) {
+		Translator translator = new Translator();
+		translator.setName("Ana");
+		translator.setEmail(email);
+		translator.setSourceLanguage("pt-BR");
+		translator.setTargetLanguage("en-US");
+		return translatorRepository.saveAndFlush(translator);
+	}
+
+	private static MockMultipartFile upload(String csv) {
+		return new MockMultipartFile("file", "documents.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+	}
+}
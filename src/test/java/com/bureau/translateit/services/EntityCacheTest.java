@@ -0,0 +1,60 @@
+package com.bureau.translateit.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityCacheTest {
+
+	private static final UUID ID = UUID.randomUUID();
+
+	private final EntityCache<StringBuilder> cache = new EntityCache<>("test", 10, 60, StringBuilder::new);
+
+	@Test
+	void callersGetTheirOwnCopy() {
+		cache.getOrLoad(ID, id -> new StringBuilder("v1")).append(" changed by the first caller");
+
+		assertEquals("v1", cache.getOrLoad(ID, id -> fail("should be cached")).toString());
+	}
+
+	@Test
+	void aLoadOverlappingAnInvalidationIsNotCached() {
+		AtomicInteger loads = new AtomicInteger();
+
+		cache.getOrLoad(ID, id -> {
+			loads.incrementAndGet();
+			//Another request commits a change while this one is still reading the old row
+			cache.invalidate(ID);
+			return new StringBuilder("old");
+		});
+		StringBuilder reloaded = cache.getOrLoad(ID, id -> {
+			loads.incrementAndGet();
+			return new StringBuilder("new");
+		});
+
+		assertEquals("new", reloaded.toString());
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void invalidationWaitsForTheCommit() {
+		cache.getOrLoad(ID, id -> new StringBuilder("old"));
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			cache.invalidate(ID);
+			assertEquals("old", cache.getOrLoad(ID, id -> fail("evicted before the commit")).toString());
+
+			TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		assertEquals("new", cache.getOrLoad(ID, id -> new StringBuilder("new")).toString());
+	}
+}
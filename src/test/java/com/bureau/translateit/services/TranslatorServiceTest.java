@@ -0,0 +1,187 @@
+package com.bureau.translateit.services;
+
+import com.bureau.translateit.config.EntityCacheConfig;
+import com.bureau.translateit.config.ImportExecutorConfig;
+import com.bureau.translateit.exceptions.EmailAlreadyUsedException;
+import com.bureau.translateit.exceptions.PreconditionFailedException;
+import com.bureau.translateit.models.ImportProgress;
+import com.bureau.translateit.models.Translator;
+import com.bureau.translateit.models.dtos.TranslatorDto;
+import com.bureau.translateit.repositories.TranslatorRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({TranslatorService.class, RecordCountCache.class, CsvImports.class, EntityCacheConfig.class, ImportExecutorConfig.class})
+class TranslatorServiceTest {
+
+	@Autowired
+	private TranslatorService translatorService;
+
+	@Autowired
+	private TranslatorRepository translatorRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+	@AfterEach
+	void cleanUp() {
+		translatorRepository.deleteAll();
+	}
+
+	//Open-in-view is off, controllers call the service without a transaction or an open session
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void updateWorksOutsideATransaction() {
+		UUID ana = save("Ana", "ana@mail.com");
+
+		Translator updated = translatorService.update(ana, dto("Ana Maria", "ana.maria@mail.com"), null);
+
+		assertEquals("Ana Maria", updated.getName());
+		assertEquals(1, updated.getVersion());
+		assertEquals("ana.maria@mail.com", translatorRepository.findById(ana).orElseThrow().getEmail());
+	}
+
+	@Test
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	void updateWithAStaleVersionIsRejected() {
+		UUID ana = save("Ana", "ana@mail.com");
+		translatorService.update(ana, dto("Ana Maria", "ana@mail.com"), 0L);
+
+		//The version the client read before the first update
+		assertThrows(PreconditionFailedException.class, () -> translatorService.update(ana, dto("Ana Clara", "ana@mail.com"), 0L));
+		assertEquals("Ana Maria", translatorRepository.findById(ana).orElseThrow().getName());
+		assertEquals("Ana Clara", translatorService.update(ana, dto("Ana Clara", "ana@mail.com"), 1L).getName());
+	}
+
+	@Test
+	void twoRowsCantTakeTheSameNewEmail() {
+		UUID ana = save("Ana", "ana@mail.com");
+		UUID bia = save("Bia", "bia@mail.com");
+
+		String csv = "id;name;email;source_language;target_language\n" +
+				ana + ";;new@mail.com;;\n" +
+				bia + ";;new@mail.com;;\n";
+
+		assertThrows(EmailAlreadyUsedException.class, () -> update(csv));
+	}
+
+	@Test
+	void swappingEmailsIsRejected() {
+		UUID ana = save("Ana", "ana@mail.com");
+		UUID bia = save("Bia", "bia@mail.com");
+
+		String csv = "id;name;email;source_language;target_language\n" +
+				ana + ";;bia@mail.com;;\n" +
+				bia + ";;ana@mail.com;;\n";
+
+		assertThrows(EmailAlreadyUsedException.class, () -> update(csv));
+	}
+
+	@Test
+	void anEmailGivenUpByAnEarlierRowCanBeTaken() {
+		UUID ana = save("Ana", "ana@mail.com");
+		UUID bia = save("Bia", "bia@mail.com");
+
+		String csv = "id;name;email;source_language;target_language\n" +
+				ana + ";;ana.new@mail.com;;\n" +
+				bia + ";;ana@mail.com;;\n";
+		update(csv);
+		entityManager.clear();
+
+		assertEquals("ana.new@mail.com", translatorRepository.findById(ana).orElseThrow().getEmail());
+		assertEquals("ana@mail.com", translatorRepository.findById(bia).orElseThrow().getEmail());
+	}
+
+	@Test
+	void importingAnEmailInUseNamesItsHolder() {
+		save("Ana", "ana@mail.com");
+
+		String csv = "name;email;source_language;target_language\n" +
+				"Bia;bia@mail.com;pt-BR;en-US\n" +
+				"Other Ana;ana@mail.com;pt-BR;en-US\n";
+
+		EmailAlreadyUsedException e = assertThrows(EmailAlreadyUsedException.class, () -> create(csv));
+		assertTrue(e.getMessage().contains("ana@mail.com is already in use by Ana"), e.getMessage());
+	}
+
+	@Test
+	void anEmailRepeatedInTheFileFailsOnItsLine() {
+		String csv = "name;email;source_language;target_language\n" +
+				"Ana;ana@mail.com;pt-BR;en-US\n" +
+				"Bia;bia@mail.com;pt-BR;en-US\n" +
+				"Other Ana;ana@mail.com;pt-BR;en-US\n";
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> create(csv));
+		assertEquals("Line 4: email ana@mail.com is used more than once in the file.", e.getMessage());
+	}
+
+	@Test
+	void createdAndListedTranslatorsSerializeTheSameFields() throws Exception {
+		JsonNode created = objectMapper.valueToTree(translatorService.create(dto("Ana", "ana@mail.com")));
+		entityManager.flush();
+		entityManager.clear();
+
+		JsonNode listed = objectMapper.valueToTree(translatorService.getAll("ana@mail.com", Pageable.unpaged()).getContent().get(0));
+
+		assertEquals(0, created.get("documentCount").asLong());
+		assertEquals(0, listed.get("documentCount").asLong());
+		assertFalse(created.has("documents"));
+		assertEquals(fieldNames(listed), fieldNames(created));
+	}
+
+	private static Set<String> fieldNames(JsonNode node) {
+		Set<String> names = new HashSet<>();
+		node.fieldNames().forEachRemaining(names::add);
+		return names;
+	}
+
+	private static TranslatorDto dto(String name, String email) {
+		TranslatorDto translatorDto = new TranslatorDto();
+		translatorDto.setName(name);
+		translatorDto.setEmail(email);
+		translatorDto.setSourceLanguage("pt-BR");
+		translatorDto.setTargetLanguage("en-US");
+		return translatorDto;
+	}
+
+	private UUID save(String name, String email) {
+		Translator translator = new Translator();
+		translator.setName(name);
+		translator.setEmail(email);
+		translator.setSourceLanguage("pt-BR");
+		translator.setTargetLanguage("en-US");
+		return translatorRepository.saveAndFlush(translator).getId();
+	}
+
+	private void create(String csv) {
+		translatorService.createFromCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportProgress.NONE, translators -> {});
+	}
+
+	private void update(String csv) {
+		translatorService.updateFromCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportProgress.NONE, translators -> {});
+	}
+}
@@ -0,0 +1,114 @@
+package com.bureau.translateit.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedTtlCacheTest {
+
+	private static final long TTL_MILLIS = 1000;
+
+	private final AtomicLong now = new AtomicLong();
+
+	@Test
+	void evictsTheLeastRecentlyUsedEntry() {
+		BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(2, TTL_MILLIS, now::get);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		//Reading a makes b the eldest
+		assertEquals("1", cache.get("a"));
+		cache.put("c", "3");
+
+		assertNull(cache.get("b"));
+		assertEquals("1", cache.get("a"));
+		assertEquals("3", cache.get("c"));
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	void entriesExpireAfterTheTtl() {
+		BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, TTL_MILLIS, now::get);
+		cache.put("a", "1");
+
+		advanceMillis(TTL_MILLIS - 1);
+		assertEquals("1", cache.get("a"));
+
+		advanceMillis(1);
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	void expiredEntriesAtTheEldestEndGoAlongWithTheEviction() {
+		BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(3, TTL_MILLIS, now::get);
+		cache.put("a", "1");
+		cache.put("b", "2");
+		advanceMillis(1);
+		cache.put("c", "3");
+
+		//a and b have expired, c is still live
+		advanceMillis(TTL_MILLIS - 1);
+		cache.put("d", "4");
+
+		assertEquals(2, cache.size());
+		assertEquals(2, cache.getEvictions());
+		assertEquals("3", cache.get("c"));
+		assertEquals("4", cache.get("d"));
+	}
+
+	@Test
+	void onlyTheEldestEndIsSwept() {
+		BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(3, TTL_MILLIS, now::get);
+		cache.put("a", "1");
+		advanceMillis(1);
+		cache.put("b", "2");
+		cache.get("a");
+
+		//a is the most recently used but has expired, b is live and stops the sweep
+		advanceMillis(TTL_MILLIS - 1);
+		cache.put("c", "3");
+
+		assertEquals(3, cache.size());
+		assertEquals(0, cache.getEvictions());
+		//a is dropped when read
+		assertNull(cache.get("a"));
+		assertEquals("2", cache.get("b"));
+		assertEquals("3", cache.get("c"));
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	void countsHitsAndMisses() {
+		BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, TTL_MILLIS, now::get);
+
+		assertEquals("1", cache.getOrLoad("a", key -> "1"));
+		assertEquals("1", cache.getOrLoad("a", key -> fail("should be cached")));
+		assertNull(cache.getOrLoad("b", key -> null));
+		assertNull(cache.get("b"));
+
+		assertEquals(1, cache.getHits());
+		assertEquals(3, cache.getMisses());
+		assertEquals(0, cache.getEvictions());
+	}
+
+	@Test
+	void invalidatedEntriesAreNotCountedAsEvictions() {
+		BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, TTL_MILLIS, now::get);
+		cache.put("a", "1");
+		cache.put("b", "2");
+
+		cache.invalidate("a");
+		assertNull(cache.get("a"));
+		cache.invalidateAll();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getEvictions());
+	}
+
+	private void advanceMillis(long millis) {
+		now.addAndGet(millis * 1_000_000L);
+	}
+}
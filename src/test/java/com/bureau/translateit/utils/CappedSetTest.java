@@ -0,0 +1,32 @@
+package com.bureau.translateit.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CappedSetTest {
+
+	@Test
+	void keepsTheFirstValuesAndCountsTheRest() {
+		CappedSet<Integer> set = new CappedSet<>(2);
+		for(int i = 0; i < 5; i++) set.add(i);
+
+		assertEquals(List.of(0, 1), List.copyOf(set.values()));
+		assertEquals(5, set.total());
+	}
+
+	@Test
+	void keptValuesAreNotCountedTwice() {
+		CappedSet<String> set = new CappedSet<>(2);
+		set.add("a");
+		set.add("a");
+		set.add("b");
+		set.add("b");
+
+		assertEquals(List.of("a", "b"), List.copyOf(set.values()));
+		assertEquals(2, set.total());
+		assertFalse(set.isEmpty());
+	}
+}
@@ -0,0 +1,146 @@
+package com.bureau.translateit.utils;
+
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelCsvReaderTest {
+
+	private static final ForkJoinPool pool = new ForkJoinPool(4);
+
+	private static final ForkJoinPool singleWorkerPool = new ForkJoinPool(1);
+
+	@AfterAll
+	static void shutdown() {
+		pool.shutdown();
+		singleWorkerPool.shutdown();
+	}
+
+	@Test
+	void quotedNewlinesDontSplitRecords() throws Exception {
+		String csv = "subject;content;author\n" +
+				"first;\"two\nlines\";a@mail.com\n" +
+				"second;\"say \"\"hi\"\";\nand more\";b@mail.com\n" +
+				"third;plain;c@mail.com";
+
+		//A chunk of a few characters forces a cut inside almost every quoted field
+		try (ParallelCsvReader<String[]> reader = open(csv, 4, pool, Function.identity())) {
+			assertArrayEquals(new String[]{"subject", "content", "author"}, reader.getHeaders());
+
+			assertArrayEquals(new String[]{"first", "two\nlines", "a@mail.com"}, reader.next());
+			assertEquals(2, reader.getLineNumber());
+			assertArrayEquals(new String[]{"second", "say \"hi\";\nand more", "b@mail.com"}, reader.next());
+			assertEquals(4, reader.getLineNumber());
+			assertArrayEquals(new String[]{"third", "plain", "c@mail.com"}, reader.next());
+			assertEquals(6, reader.getLineNumber());
+			assertNull(reader.next());
+		}
+	}
+
+	@Test
+	void readsTheSameRecordsAsCsvReader() throws Exception {
+		Random random = new Random(42);
+		String[] pieces = {"a", "bc", ";", "\"", "\\", "\n", "\r\n", " ", "é"};
+		StringBuilder csv = new StringBuilder("h1;h2;h3\n");
+		for(int row = 0; row < 2000; row++) {
+			for(int field = 0; field < 3; field++) {
+				StringBuilder value = new StringBuilder();
+				for(int i = random.nextInt(6); i > 0; i--) value.append(pieces[random.nextInt(pieces.length)]);
+				if(field > 0) csv.append(';');
+				if(value.toString().matches("[a-z ]*")) {
+					csv.append(value);
+				} else {
+					//Quotes are escaped both ways the parser accepts
+					String quote = random.nextBoolean() ? "\"\"" : "\\\"";
+					csv.append('"').append(value.toString().replace("\\", "\\\\").replace("\"", quote)).append('"');
+				}
+			}
+			csv.append('\n');
+		}
+
+		List<String[]> expected = new ArrayList<>();
+		CSVReader csvReader = new CSVReaderBuilder(new StringReader(csv.toString()))
+				.withCSVParser(new CSVParserBuilder().withSeparator(';').build()).build();
+		csvReader.readNext();
+		String[] row;
+		while((row = csvReader.readNext()) != null) expected.add(row);
+
+		for(int chunkChars : new int[]{1, 37, 4096, 1 << 20}) {
+			List<String[]> actual = new ArrayList<>();
+			try (ParallelCsvReader<String[]> reader = open(csv.toString(), chunkChars, pool, Function.identity())) {
+				while((row = reader.next()) != null) actual.add(row);
+			}
+			assertEquals(expected.size(), actual.size());
+			for(int i = 0; i < expected.size(); i++) {
+				assertArrayEquals(expected.get(i), actual.get(i), "row " + i + " with chunks of " + chunkChars);
+			}
+		}
+	}
+
+	@Test
+	void singleWorkerReadsTheInputSequentially() throws Exception {
+		String csv = "subject;content\nfirst;\"two\nlines\"\nsecond;bad\n";
+
+		try (ParallelCsvReader<String> reader = open(csv, 4, singleWorkerPool, row -> {
+			if(row[1].equals("bad")) throw new IllegalArgumentException(row[0]);
+			return row[0];
+		})) {
+			assertArrayEquals(new String[]{"subject", "content"}, reader.getHeaders());
+			assertEquals("first", reader.next());
+			assertEquals(2, reader.getLineNumber());
+			assertThrows(IllegalArgumentException.class, reader::next);
+			assertEquals(4, reader.getLineNumber());
+		}
+	}
+
+	@Test
+	void failuresAreThrownAtTheirRowInFileOrder() throws Exception {
+		StringBuilder csv = new StringBuilder("value\n");
+		for(int i = 1; i <= 1000; i++) csv.append(i == 700 || i == 900 ? "bad" : String.valueOf(i)).append('\n');
+
+		try (ParallelCsvReader<Integer> reader = open(csv.toString(), 64, pool, row -> Integer.parseInt(row[0]))) {
+			for(int i = 1; i < 700; i++) {
+				assertEquals(i, reader.next());
+			}
+			assertThrows(NumberFormatException.class, reader::next);
+			assertEquals(701, reader.getLineNumber());
+		}
+	}
+
+	@Test
+	void closeReleasesTheInput() throws Exception {
+		for(ForkJoinPool readerPool : new ForkJoinPool[]{pool, singleWorkerPool}) {
+			AtomicBoolean closed = new AtomicBoolean();
+			InputStream input = new ByteArrayInputStream("value\n1\n2\n".getBytes(StandardCharsets.UTF_8)) {
+				@Override
+				public void close() {
+					closed.set(true);
+				}
+			};
+
+			try (ParallelCsvReader<String[]> reader = new ParallelCsvReader<>(input, ';', 4, readerPool, Function.identity())) {
+				assertArrayEquals(new String[]{"1"}, reader.next());
+			}
+			assertTrue(closed.get());
+		}
+	}
+
+	private static <T> ParallelCsvReader<T> open(String csv, int chunkChars, ForkJoinPool pool, Function<String[], T> mapper) throws Exception {
+		return new ParallelCsvReader<>(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ';', chunkChars, pool, mapper);
+	}
+}